@@ -4,7 +4,6 @@ import com.google.common.collect.ImmutableMap;
 import com.sudicode.tunejar.player.Player;
 
 import java.io.File;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.prefs.Preferences;
@@ -20,9 +19,70 @@ public final class Defaults {
     public static final LinkedHashSet<File> DIRECTORIES = new LinkedHashSet<>();
 
     /**
-     * Timeout (in seconds) for refreshing.
+     * Type of storage that holds the music directories.
      */
-    public static final long TIMEOUT = 5L * 60;
+    public static final StorageType STORAGE_TYPE = StorageType.SSD;
+
+    /**
+     * Number of threads used to parse songs stored on solid state drives.
+     */
+    public static final int SSD_PARSER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Number of threads used to parse songs stored on hard drives or network storage.
+     */
+    public static final int HDD_PARSER_THREADS = 2;
+
+    /**
+     * Maximum number of files (or parsed songs) waiting between two stages of a scan.
+     */
+    public static final int SCAN_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Number of threads used to write tags to audio files. Bulk edits keep all of them busy.
+     */
+    public static final int TAG_WRITER_THREADS = 4;
+
+    /**
+     * Time (in seconds) to wait for pending tag writes when the application exits.
+     */
+    public static final int TAG_WRITE_DRAIN_TIMEOUT = 30;
+
+    /**
+     * Maximum number of files whose writability is remembered. The least recently probed files are forgotten first.
+     */
+    public static final int WRITABILITY_CACHE_SIZE = 4096;
+
+    /**
+     * Time (in milliseconds) that the search field must be left unchanged before the song table is filtered.
+     */
+    public static final long SEARCH_DELAY = 150;
+
+    /**
+     * Interval (in milliseconds) at which newly parsed songs are added to the song table during a refresh.
+     */
+    public static final long PUBLISH_INTERVAL = 200;
+
+    /**
+     * Interval (in seconds) at which the song cache is saved during a refresh, so that an interrupted refresh does
+     * not have to parse the same songs again.
+     */
+    public static final long CHECKPOINT_INTERVAL = 30;
+
+    /**
+     * Interval (in seconds) at which a summary of the scan statistics is logged during a refresh.
+     */
+    public static final long STATISTICS_LOG_INTERVAL = 10;
+
+    /**
+     * Time (in milliseconds) that a watched directory must be quiet before its changes are applied.
+     */
+    public static final long WATCH_DEBOUNCE = 1000;
+
+    /**
+     * Interval (in seconds) at which directories that cannot be watched are polled for changes.
+     */
+    public static final long WATCH_POLL_INTERVAL = 30;
 
     /**
      * Path to the TuneJar icon.
@@ -81,14 +141,14 @@ public final class Defaults {
     public static final boolean SHUFFLE = false;
 
     /**
-     * Data structure to store playlists. Maps playlist titles to their respective M3U strings.
+     * Used to instantiate {@link Options}.
      */
-    public static final LinkedHashMap<String, String> PLAYLISTS = new LinkedHashMap<>();
+    public static final Preferences PREFERENCES_NODE = Preferences.userNodeForPackage(Options.class);
 
     /**
-     * Used to instantiate {@link Options}.
+     * Time (in milliseconds) that options must be left unchanged before they are written to disk.
      */
-    public static final Preferences PREFERENCES_NODE = Preferences.userNodeForPackage(Options.class);
+    public static final long OPTIONS_WRITE_DELAY = 2000;
 
     /**
      * Width of the player.
@@ -105,6 +165,32 @@ public final class Defaults {
      */
     public static final boolean MAXIMIZED = false;
 
+    /**
+     * Display the library and playlists as they were after the last refresh, while the directories are scanned?
+     */
+    public static final boolean STALE_WHILE_REVALIDATE = false;
+
+    /**
+     * Directory in which TuneJar stores its data files.
+     */
+    public static final File DATA_DIRECTORY = new File(System.getProperty("tunejar.home",
+            new File(System.getProperty("user.home"), ".tunejar").getPath()));
+
+    /**
+     * File used to cache song metadata between refreshes.
+     */
+    public static final File SONG_CACHE = new File(DATA_DIRECTORY, "songs.cache");
+
+    /**
+     * File used to display the library at startup, before the music directories have been scanned.
+     */
+    public static final File LIBRARY_SNAPSHOT = new File(DATA_DIRECTORY, "library.snapshot");
+
+    /**
+     * Directory in which playlists are stored.
+     */
+    public static final File PLAYLIST_DIRECTORY = new File(DATA_DIRECTORY, "playlists");
+
     /**
      * Illegal.
      */
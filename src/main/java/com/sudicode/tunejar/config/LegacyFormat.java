@@ -0,0 +1,68 @@
+package com.sudicode.tunejar.config;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Set;
+
+/**
+ * Reads options which earlier versions of TuneJar stored using Java serialization. Only the classes which were
+ * actually stored can be deserialized, so a tampered preferences file cannot instantiate arbitrary classes.
+ */
+final class LegacyFormat {
+
+    private static final Set<String> ALLOWED_CLASSES = ImmutableSet.of(
+            "java.io.File",
+            "java.lang.String",
+            "[Ljava.lang.String;",
+            "java.util.HashMap",
+            "java.util.HashSet",
+            "java.util.LinkedHashMap",
+            "java.util.LinkedHashSet");
+
+    /**
+     * Illegal.
+     */
+    private LegacyFormat() {
+    }
+
+    /**
+     * Deserializes an option.
+     *
+     * @param bytes The serialized option
+     * @param <T>   Type of the option
+     * @return The option
+     * @throws IOException if the bytes are corrupt, or contain a class which is not allowed
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T deserialize(final byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new WhitelistObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (T) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * {@link ObjectInputStream} which rejects every class that is not in {@link #ALLOWED_CLASSES}.
+     */
+    private static final class WhitelistObjectInputStream extends ObjectInputStream {
+        private WhitelistObjectInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!ALLOWED_CLASSES.contains(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "Class not allowed in options");
+            }
+            return super.resolveClass(desc);
+        }
+    }
+
+}
@@ -1,33 +1,139 @@
 package com.sudicode.tunejar.config;
 
 import javafx.scene.control.TableColumn.SortType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
-
-import static org.apache.commons.lang3.SerializationUtils.*;
+import java.util.stream.Collectors;
 
 /**
  * The {@link Options} object is a set of getter/setter pairs which safely
- * interact with a {@link Preferences} node.
+ * interact with a {@link Preferences} node. Changes are kept in memory and
+ * written to the node in the background once no change has been made for
+ * {@link Defaults#OPTIONS_WRITE_DELAY} milliseconds, so {@link #flush()} must
+ * be called before the application exits.
+ * <p>
+ * Options which hold collections are read once and kept in typed fields. They
+ * are stored as newline-separated strings; the Java serialization used by
+ * earlier versions is converted on first start. The playlists are read from
+ * the {@link PlaylistStore} once as well, and the copy in memory is updated
+ * along with the store.
  */
 public final class Options {
 
+    private static final Logger logger = LoggerFactory.getLogger(Options.class);
+
+    /**
+     * Version of the storage format. Version 1 stored collections using Java serialization.
+     */
+    private static final int VERSION = 2;
+
     /**
      * {@link Preferences} node.
      */
     private Preferences prefs;
 
+    /**
+     * Storage of the playlists, which are too large for {@link Preferences}.
+     */
+    private PlaylistStore playlistStore;
+    private boolean playlistsMigrated;
+
+    // Typed options, loaded once
+    private LinkedHashSet<File> directories;
+    private String[] sortOrder;
+    private String[] columnOrder;
+    private LinkedHashMap<String, String> playlists;
+
     /**
      * Construct a new {@link Options} object.
      *
      * @param prefs {@link Preferences} node to use
      */
     public Options(final Preferences prefs) {
-        this.prefs = prefs;
+        this(prefs, new PlaylistStore(Defaults.PLAYLIST_DIRECTORY));
+    }
+
+    /**
+     * Construct a new {@link Options} object.
+     *
+     * @param prefs         {@link Preferences} node to use
+     * @param playlistStore {@link PlaylistStore} to use
+     */
+    public Options(final Preferences prefs, final PlaylistStore playlistStore) {
+        this.prefs = new WriteBehindPreferences(prefs, Defaults.OPTIONS_WRITE_DELAY);
+        this.playlistStore = playlistStore;
+        if (this.prefs.getInt("version", 1) < VERSION) {
+            migrate();
+        }
+        load();
+    }
+
+    /**
+     * Reads the typed options.
+     */
+    private synchronized void load() {
+        String dirs = prefs.get("directories", null);
+        directories = dirs != null ? Arrays.stream(split(dirs)).map(File::new)
+                .collect(Collectors.toCollection(LinkedHashSet::new)) : new LinkedHashSet<>(Defaults.DIRECTORIES);
+        String sorts = prefs.get("sortOrder", null);
+        sortOrder = sorts != null ? split(sorts) : Defaults.SORT_ORDER.clone();
+        String columns = prefs.get("columnOrder", null);
+        columnOrder = columns != null ? split(columns) : Defaults.COLUMN_ORDER.clone();
+        playlists = getPlaylistStore().loadAll();
+    }
+
+    /**
+     * Converts options stored using Java serialization to the current format. Options which cannot be converted are
+     * reset to their defaults.
+     */
+    private void migrate() {
+        try {
+            byte[] dirs = prefs.getByteArray("directories", null);
+            if (dirs != null) {
+                LinkedHashSet<File> set = LegacyFormat.deserialize(dirs);
+                prefs.put("directories", join(set.stream().map(File::getPath).toArray(String[]::new)));
+            }
+            byte[] sorts = prefs.getByteArray("sortOrder", null);
+            if (sorts != null) {
+                prefs.put("sortOrder", join(LegacyFormat.<String[]>deserialize(sorts)));
+            }
+            byte[] columns = prefs.getByteArray("columnOrder", null);
+            if (columns != null) {
+                prefs.put("columnOrder", join(LegacyFormat.<String[]>deserialize(columns)));
+            }
+            logger.info("Converted options to version {}.", VERSION);
+        } catch (IOException | ClassCastException e) {
+            logger.error("Failed to convert options, resetting them to defaults.", e);
+            prefs.remove("directories");
+            prefs.remove("sortOrder");
+            prefs.remove("columnOrder");
+        }
+        prefs.putInt("version", VERSION);
+    }
+
+    /**
+     * @param values Values which do not contain line breaks
+     * @return The values, separated by line breaks.
+     */
+    private static String join(final String[] values) {
+        return String.join("\n", values);
+    }
+
+    /**
+     * @param value Values separated by line breaks
+     * @return The values.
+     */
+    private static String[] split(final String value) {
+        return value.isEmpty() ? new String[0] : value.split("\n");
     }
 
     /**
@@ -47,16 +153,18 @@ public final class Options {
     /**
      * @return Music directories.
      */
-    public LinkedHashSet<File> getDirectories() {
-        byte[] buff = prefs.getByteArray("directories", null);
-        return buff != null ? deserialize(buff) : Defaults.DIRECTORIES;
+    public synchronized LinkedHashSet<File> getDirectories() {
+        return new LinkedHashSet<>(directories);
     }
 
     /**
      * @param directories Music directories to use.
      */
-    public void setDirectories(final LinkedHashSet<File> directories) {
-        prefs.putByteArray("directories", serialize(directories));
+    public synchronized void setDirectories(final LinkedHashSet<File> directories) {
+        if (!this.directories.equals(directories)) {
+            this.directories = new LinkedHashSet<>(directories);
+            prefs.put("directories", join(directories.stream().map(File::getPath).toArray(String[]::new)));
+        }
     }
 
     /**
@@ -76,31 +184,35 @@ public final class Options {
     /**
      * @return Current sort order (Title / Artist / Album).
      */
-    public String[] getSortOrder() {
-        byte[] buff = prefs.getByteArray("sortOrder", null);
-        return buff != null ? deserialize(buff) : Defaults.SORT_ORDER;
+    public synchronized String[] getSortOrder() {
+        return sortOrder.clone();
     }
 
     /**
      * @param sorts Sort order to use (Title / Artist / Album).
      */
-    public void setSortOrder(final String... sorts) {
-        prefs.putByteArray("sortOrder", serialize(sorts));
+    public synchronized void setSortOrder(final String... sorts) {
+        if (!Arrays.equals(sortOrder, sorts)) {
+            sortOrder = sorts.clone();
+            prefs.put("sortOrder", join(sorts));
+        }
     }
 
     /**
      * @return Current order of the columns.
      */
-    public String[] getColumnOrder() {
-        byte[] buff = prefs.getByteArray("columnOrder", null);
-        return buff != null ? deserialize(buff) : Defaults.COLUMN_ORDER;
+    public synchronized String[] getColumnOrder() {
+        return columnOrder.clone();
     }
 
     /**
      * @param columns Column order to use.
      */
-    public void setColumnOrder(final String... columns) {
-        prefs.putByteArray("columnOrder", serialize(columns));
+    public synchronized void setColumnOrder(final String... columns) {
+        if (!Arrays.equals(columnOrder, columns)) {
+            columnOrder = columns.clone();
+            prefs.put("columnOrder", join(columns));
+        }
     }
 
     /**
@@ -180,19 +292,115 @@ public final class Options {
         prefs.putBoolean("shuffle", shuffle);
     }
 
+    /**
+     * @return Type of storage that holds the music directories.
+     */
+    public StorageType getStorageType() {
+        try {
+            return StorageType.valueOf(prefs.get("storageType", Defaults.STORAGE_TYPE.name()));
+        } catch (IllegalArgumentException e) {
+            return Defaults.STORAGE_TYPE;
+        }
+    }
+
+    /**
+     * @param storageType Type of storage that holds the music directories.
+     */
+    public void setStorageType(final StorageType storageType) {
+        prefs.put("storageType", storageType.name());
+    }
+
+    /**
+     * @param storageType Type of storage
+     * @return Number of threads used to parse songs on that type of storage.
+     */
+    public int getParserThreads(final StorageType storageType) {
+        int def = storageType == StorageType.SSD ? Defaults.SSD_PARSER_THREADS : Defaults.HDD_PARSER_THREADS;
+        return Math.max(1, prefs.getInt("parserThreads" + storageType.name(), def));
+    }
+
+    /**
+     * @param storageType Type of storage
+     * @param threads     Number of threads to parse songs with on that type of storage.
+     */
+    public void setParserThreads(final StorageType storageType, final int threads) {
+        prefs.putInt("parserThreads" + storageType.name(), threads);
+    }
+
     /**
      * @return Map of playlist titles to their respective M3U strings.
      */
-    public LinkedHashMap<String, String> getPlaylists() {
-        byte[] buff = prefs.getByteArray("playlists", null);
-        return buff != null ? deserialize(buff) : Defaults.PLAYLISTS;
+    public synchronized LinkedHashMap<String, String> getPlaylists() {
+        return new LinkedHashMap<>(playlists);
     }
 
     /**
      * @param playlists Map of playlist titles to their respective M3U strings.
      */
-    public void setPlaylists(final LinkedHashMap<String, String> playlists) {
-        prefs.putByteArray("playlists", serialize(playlists));
+    public synchronized void setPlaylists(final LinkedHashMap<String, String> playlists) {
+        getPlaylistStore().replaceAll(playlists);
+        this.playlists = new LinkedHashMap<>(playlists);
+    }
+
+    /**
+     * Saves a single playlist, without touching the others.
+     *
+     * @param name      Playlist title
+     * @param m3uString Contents of the playlist
+     */
+    public synchronized void savePlaylist(final String name, final String m3uString) {
+        getPlaylistStore().save(name, m3uString);
+        playlists.put(name, m3uString);
+    }
+
+    /**
+     * @param oldName Current playlist title
+     * @param newName New playlist title
+     */
+    public synchronized void renamePlaylist(final String oldName, final String newName) {
+        getPlaylistStore().rename(oldName, newName);
+        if (playlists.containsKey(oldName) && !oldName.equals(newName)) {
+            LinkedHashMap<String, String> renamed = new LinkedHashMap<>();
+            playlists.forEach((name, m3uString) -> renamed.put(name.equals(oldName) ? newName : name, m3uString));
+            playlists = renamed;
+        }
+    }
+
+    /**
+     * @param name Title of the playlist to delete
+     */
+    public synchronized void deletePlaylist(final String name) {
+        getPlaylistStore().delete(name);
+        playlists.remove(name);
+    }
+
+    /**
+     * Playlists used to be stored in {@link Preferences} as a single serialized map. If that map is still present,
+     * it is moved to the {@link PlaylistStore} on first use. The map is only removed once the store holds the
+     * playlists, so a migration which fails is attempted again at the next start.
+     *
+     * @return The {@link PlaylistStore}.
+     */
+    private synchronized PlaylistStore getPlaylistStore() {
+        if (!playlistsMigrated) {
+            byte[] buff = prefs.getByteArray("playlists", null);
+            if (buff != null) {
+                if (playlistStore.exists()) {
+                    prefs.remove("playlists");
+                } else {
+                    try {
+                        LinkedHashMap<String, String> playlists = LegacyFormat.deserialize(buff);
+                        playlistStore.replaceAll(playlists);
+                        prefs.remove("playlists");
+                        logger.info("Migrated {} playlists out of preferences.", playlists.size());
+                    } catch (IOException | UncheckedIOException | ClassCastException e) {
+                        logger.error("Failed to migrate playlists out of preferences, will retry at next start.", e);
+                    }
+                }
+            }
+            playlistsMigrated = true;
+        }
+        return playlistStore;
     }
 
     /**
@@ -238,13 +446,44 @@ public final class Options {
     }
 
     /**
-     * Clears all key-value mappings in the {@link Preferences} node.
+     * @return <code>true</code> if the library and playlists saved by the last refresh are displayed at startup, and
+     * then brought up to date in place.
+     */
+    public boolean isStaleWhileRevalidate() {
+        return prefs.getBoolean("staleWhileRevalidate", Defaults.STALE_WHILE_REVALIDATE);
+    }
+
+    /**
+     * @param staleWhileRevalidate <code>true</code> to display the library and playlists saved by the last refresh
+     *                             at startup.
+     */
+    public void setStaleWhileRevalidate(final boolean staleWhileRevalidate) {
+        prefs.putBoolean("staleWhileRevalidate", staleWhileRevalidate);
+    }
+
+    /**
+     * Writes all pending changes to the {@link Preferences} node.
+     */
+    public void flush() {
+        try {
+            prefs.flush();
+        } catch (BackingStoreException e) {
+            logger.error("Failed to write preferences.", e);
+        }
+    }
+
+    /**
+     * Clears all key-value mappings in the {@link Preferences} node, and deletes all playlists.
      *
      * @throws BackingStoreException if this operation cannot be completed due to a failure in the backing store, or
      *                               inability to communicate with it.
      */
-    public void clear() throws BackingStoreException {
+    public synchronized void clear() throws BackingStoreException {
         prefs.clear();
+        prefs.putInt("version", VERSION);
+        prefs.flush();
+        playlistStore.clear();
+        load();
     }
 
 }
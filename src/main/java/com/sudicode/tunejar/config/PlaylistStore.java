@@ -0,0 +1,230 @@
+package com.sudicode.tunejar.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Stores each playlist as its own M3U file, so that saving a playlist only writes that playlist. The order of the
+ * playlists is kept in a separate index file, which only changes when a playlist is created, renamed or deleted.
+ * Every file is replaced atomically, so an interrupted write never leaves a truncated playlist behind.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class PlaylistStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistStore.class);
+    private static final String INDEX = "playlists.index";
+    private static final String EXTENSION = ".m3u";
+
+    private final File directory;
+    private List<String> names;
+
+    /**
+     * Construct a new {@link PlaylistStore}. Nothing is read until the store is first used.
+     *
+     * @param directory Directory holding the playlist files
+     */
+    public PlaylistStore(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return <code>true</code> if playlists have ever been saved to this store.
+     */
+    public boolean exists() {
+        return new File(directory, INDEX).isFile();
+    }
+
+    /**
+     * Reads every playlist.
+     *
+     * @return Map of playlist titles to their respective M3U strings, in order.
+     */
+    public synchronized LinkedHashMap<String, String> loadAll() {
+        LinkedHashMap<String, String> playlists = new LinkedHashMap<>();
+        for (String name : names()) {
+            File file = fileOf(name);
+            try {
+                playlists.put(name, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                logger.error("Failed to read playlist: " + file, e);
+            }
+        }
+        return playlists;
+    }
+
+    /**
+     * Writes a single playlist. A playlist which does not exist yet is added after all other playlists.
+     *
+     * @param name      Title of the playlist
+     * @param m3uString Contents of the playlist
+     */
+    public synchronized void save(final String name, final String m3uString) {
+        write(fileOf(name), m3uString);
+        if (!names().contains(name)) {
+            names.add(name);
+            writeIndex();
+        }
+    }
+
+    /**
+     * Renames a playlist, keeping its position. Does nothing if the playlist does not exist.
+     *
+     * @param oldName Current title of the playlist
+     * @param newName New title of the playlist
+     * @throws IllegalArgumentException if another playlist has the new title, ignoring case. Such titles would share
+     *                                  a file on case-insensitive file systems.
+     */
+    public synchronized void rename(final String oldName, final String newName) {
+        int index = names().indexOf(oldName);
+        if (index < 0 || oldName.equals(newName)) {
+            return;
+        }
+        for (String name : names) {
+            if (!name.equals(oldName) && name.equalsIgnoreCase(newName)) {
+                throw new IllegalArgumentException("A playlist named " + name + " already exists.");
+            }
+        }
+        try {
+            Files.move(fileOf(oldName).toPath(), fileOf(newName).toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rename playlist: " + oldName, e);
+        }
+        names.set(index, newName);
+        writeIndex();
+    }
+
+    /**
+     * Deletes a playlist. Does nothing if the playlist does not exist.
+     *
+     * @param name Title of the playlist
+     */
+    public synchronized void delete(final String name) {
+        if (names().remove(name)) {
+            writeIndex();
+            try {
+                Files.deleteIfExists(fileOf(name).toPath());
+            } catch (IOException e) {
+                logger.error("Failed to delete playlist file: " + fileOf(name), e);
+            }
+        }
+    }
+
+    /**
+     * Replaces all playlists. The new playlists and index are written before the files of the old playlists are
+     * deleted, so a failure partway through never loses a playlist.
+     *
+     * @param playlists Map of playlist titles to their respective M3U strings
+     */
+    public synchronized void replaceAll(final Map<String, String> playlists) {
+        List<String> previous = names();
+        playlists.forEach((name, m3uString) -> write(fileOf(name), m3uString));
+        names = new ArrayList<>(playlists.keySet());
+        writeIndex();
+
+        Set<String> kept = playlists.keySet().stream().map(name -> name.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        for (String name : previous) {
+            if (!kept.contains(name.toLowerCase(Locale.ROOT))) {
+                try {
+                    Files.deleteIfExists(fileOf(name).toPath());
+                } catch (IOException e) {
+                    logger.error("Failed to delete playlist file: " + fileOf(name), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes all playlists.
+     */
+    public synchronized void clear() {
+        for (String name : names()) {
+            try {
+                Files.deleteIfExists(fileOf(name).toPath());
+            } catch (IOException e) {
+                logger.error("Failed to delete playlist file: " + fileOf(name), e);
+            }
+        }
+        names = new ArrayList<>();
+        try {
+            Files.deleteIfExists(new File(directory, INDEX).toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete playlist index", e);
+        }
+    }
+
+    /**
+     * @return Titles of the playlists, in order. Read from the index file on first use.
+     */
+    private List<String> names() {
+        if (names == null) {
+            names = new ArrayList<>();
+            File index = new File(directory, INDEX);
+            if (index.isFile()) {
+                try {
+                    for (String line : Files.readAllLines(index.toPath(), StandardCharsets.UTF_8)) {
+                        if (!line.isEmpty()) {
+                            names.add(line);
+                        }
+                    }
+                } catch (IOException e) {
+                    logger.error("Failed to read playlist index: " + index, e);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param name Title of a playlist
+     * @return The file holding the playlist. The title is encoded so that it is a valid file name on any platform.
+     */
+    private File fileOf(final String name) {
+        try {
+            return new File(directory, URLEncoder.encode(name, "UTF-8") + EXTENSION);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private void writeIndex() {
+        write(new File(directory, INDEX), String.join(System.lineSeparator(), names));
+    }
+
+    /**
+     * Replaces the contents of a file atomically.
+     *
+     * @param file     The file
+     * @param contents The new contents
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    private void write(final File file, final String contents) {
+        Path tmp = new File(file.getPath() + ".tmp").toPath();
+        try {
+            Files.createDirectories(directory.toPath());
+            Files.write(tmp, contents.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write: " + file, e);
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.sudicode.tunejar.config;
+
+/**
+ * Type of storage that holds the music directories. Determines how many songs are parsed in parallel during a scan.
+ */
+public enum StorageType {
+
+    /**
+     * Solid state drives, which handle many concurrent random reads well.
+     */
+    SSD("Solid State Drive"),
+
+    /**
+     * Spinning hard drives and network storage, which slow down when reads compete for the same disk head or link.
+     */
+    HDD("Hard Drive / Network");
+
+    private final String displayName;
+
+    StorageType(final String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * @return Name of the storage type, as displayed to the user.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+}
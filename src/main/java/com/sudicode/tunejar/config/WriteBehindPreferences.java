@@ -0,0 +1,197 @@
+package com.sudicode.tunejar.config;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.AbstractPreferences;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * A {@link Preferences} node which buffers writes in memory and applies them to a backing node once no write has
+ * happened for a while. Repeated writes to the same key, such as those caused by resizing the window, are coalesced
+ * into a single write. Reads are served from memory.
+ * <p>
+ * Pending writes are lost unless {@link #flush()} is called before the application exits. Child nodes buffer their
+ * writes in the same way, and are flushed along with their parent.
+ */
+final class WriteBehindPreferences extends AbstractPreferences {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindPreferences.class);
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("options-writer-%d").setDaemon(true).build());
+
+    private final Preferences backing;
+    private final long delay;
+
+    /**
+     * Pending writes. A <code>null</code> value means that the key is to be removed.
+     */
+    private final Map<String, String> pending = new HashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Construct a new {@link WriteBehindPreferences} node.
+     *
+     * @param backing The node to write to
+     * @param delay   Time (in milliseconds) to wait for further writes before writing to the backing node
+     */
+    WriteBehindPreferences(final Preferences backing, final long delay) {
+        this(null, "", backing, delay);
+    }
+
+    /**
+     * Construct a new {@link WriteBehindPreferences} node.
+     *
+     * @param parent  The parent of this node, or <code>null</code> if this is a root
+     * @param name    The name of this node, relative to its parent
+     * @param backing The node to write to
+     * @param delay   Time (in milliseconds) to wait for further writes before writing to the backing node
+     */
+    private WriteBehindPreferences(final WriteBehindPreferences parent, final String name, final Preferences backing,
+                                   final long delay) {
+        super(parent, name);
+        this.backing = backing;
+        this.delay = delay;
+    }
+
+    @Override
+    protected void putSpi(final String key, final String value) {
+        pending.put(key, value);
+        scheduleFlush();
+    }
+
+    @Override
+    protected String getSpi(final String key) {
+        return pending.containsKey(key) ? pending.get(key) : backing.get(key, null);
+    }
+
+    @Override
+    protected void removeSpi(final String key) {
+        pending.put(key, null);
+        scheduleFlush();
+    }
+
+    @Override
+    protected String[] keysSpi() throws BackingStoreException {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String key : backing.keys()) {
+            keys.add(key);
+        }
+        pending.forEach((key, value) -> {
+            if (value != null) {
+                keys.add(key);
+            } else {
+                keys.remove(key);
+            }
+        });
+        return keys.toArray(new String[keys.size()]);
+    }
+
+    /**
+     * Discards the pending writes of this node and its descendants, then removes the backing node. Unlike other
+     * nodes, the node this one was constructed with can be removed as well.
+     *
+     * @throws BackingStoreException if the backing node could not be removed
+     */
+    @Override
+    public void removeNode() throws BackingStoreException {
+        if (parent() != null) {
+            super.removeNode();
+            return;
+        }
+        discardPending();
+        backing.removeNode();
+    }
+
+    @Override
+    protected void removeNodeSpi() throws BackingStoreException {
+        discardPending();
+        backing.removeNode();
+    }
+
+    /**
+     * Forgets the pending writes of this node and its descendants.
+     */
+    private void discardPending() {
+        synchronized (lock) {
+            for (AbstractPreferences child : cachedChildren()) {
+                ((WriteBehindPreferences) child).discardPending();
+            }
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            pending.clear();
+        }
+    }
+
+    @Override
+    protected String[] childrenNamesSpi() throws BackingStoreException {
+        return backing.childrenNames();
+    }
+
+    @Override
+    protected AbstractPreferences childSpi(final String name) {
+        return new WriteBehindPreferences(this, name, backing.node(name), delay);
+    }
+
+    @Override
+    protected void syncSpi() throws BackingStoreException {
+        flushSpi();
+        backing.sync();
+    }
+
+    /**
+     * Applies the pending writes to the backing node, then flushes it. Called with this node's lock held.
+     *
+     * @throws BackingStoreException if the backing node could not be flushed
+     */
+    @Override
+    protected void flushSpi() throws BackingStoreException {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        pending.forEach((key, value) -> {
+            if (value != null) {
+                backing.put(key, value);
+            } else {
+                backing.remove(key);
+            }
+        });
+        logger.debug("Wrote {} pending preferences.", pending.size());
+        pending.clear();
+        backing.flush();
+    }
+
+    /**
+     * Schedules a flush, replacing the one scheduled by an earlier write. Called with this node's lock held.
+     */
+    private void scheduleFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = scheduler.schedule(() -> {
+            try {
+                flush();
+            } catch (BackingStoreException | RuntimeException e) {
+                logger.error("Failed to write preferences.", e);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+}
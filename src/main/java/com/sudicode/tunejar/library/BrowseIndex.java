@@ -0,0 +1,358 @@
+package com.sudicode.tunejar.library;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.TextKeys;
+import com.sudicode.tunejar.song.Track;
+import org.jaudiotagger.tag.FieldKey;
+
+import java.io.File;
+import java.text.CollationKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Groups songs by artist and by album, so that either can be browsed without going through every song. Two trees are
+ * kept: artists, then their albums, then songs; and albums, then their artists, then songs. Every node counts the
+ * songs below it, and adding, removing or retagging a song only updates the nodes along its paths.
+ * <p>
+ * Artists and albums are ordered by the sort keys of their tracks, as in the song table, and songs are listed in the
+ * order they were added. The index is safe to query from any thread while it is being updated.
+ */
+public final class BrowseIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The track each song was indexed with, by absolute path. Songs can be retagged in place, so their nodes are
+     * found through the track they were indexed with rather than their current one.
+     */
+    private final Map<String, Track> tracks = new HashMap<>();
+
+    private final Node artists = new Node();
+    private final Node albums = new Node();
+    private int version;
+
+    /**
+     * Adds a song, or moves it to its new artist and album if it was retagged.
+     *
+     * @param song The song
+     */
+    public void put(final Song song) {
+        Track track = song.getTrack();
+        String path = song.getAbsoluteFilename();
+        Name artist = new Name(track, FieldKey.ARTIST);
+        Name album = new Name(track, FieldKey.ALBUM);
+        lock.writeLock().lock();
+        try {
+            Track previous = tracks.put(path, track);
+            if (previous != null) {
+                unindex(path, previous);
+            }
+            artists.add(artist, album, path, song);
+            albums.add(album, artist, path, song);
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lists another instance of an indexed song in its place, such as a copy with the same tags. Its artist and album
+     * are not looked at again. Files which are not in the index are ignored.
+     *
+     * @param song The song
+     */
+    void replace(final Song song) {
+        String path = song.getAbsoluteFilename();
+        lock.writeLock().lock();
+        try {
+            Track track = tracks.get(path);
+            if (track == null) {
+                return;
+            }
+            Name artist = new Name(track, FieldKey.ARTIST);
+            Name album = new Name(track, FieldKey.ALBUM);
+            artists.add(artist, album, path, song);
+            albums.add(album, artist, path, song);
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a file, or every file in a directory.
+     *
+     * @param file The file or directory
+     */
+    public void remove(final File file) {
+        String path = file.getAbsolutePath();
+        String prefix = path + File.separator;
+        lock.writeLock().lock();
+        try {
+            tracks.entrySet().removeIf(entry -> {
+                if (entry.getKey().equals(path) || entry.getKey().startsWith(prefix)) {
+                    unindex(entry.getKey(), entry.getValue());
+                    version++;
+                    return true;
+                }
+                return false;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every song.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            tracks.clear();
+            artists.children.clear();
+            artists.count = 0;
+            albums.children.clear();
+            albums.count = 0;
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param path  The absolute path of a song
+     * @param track The track the song was indexed with
+     */
+    private void unindex(final String path, final Track track) {
+        Name artist = new Name(track, FieldKey.ARTIST);
+        Name album = new Name(track, FieldKey.ALBUM);
+        artists.remove(artist, album, path);
+        albums.remove(album, artist, path);
+    }
+
+    /**
+     * @return A number which changes whenever the index does, so that views of it know when to be refreshed.
+     */
+    public int getVersion() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of songs in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return tracks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Every artist, in order. Songs without an artist are grouped under an empty name.
+     */
+    public List<Group> getArtists() {
+        return groups(artists);
+    }
+
+    /**
+     * @return Every album, in order. Albums with the same name are grouped together, whoever their artist.
+     */
+    public List<Group> getAlbums() {
+        return groups(albums);
+    }
+
+    /**
+     * @param artist An artist
+     * @return The albums of the artist, in order. Empty if the artist has no songs.
+     */
+    public List<Group> getAlbums(final String artist) {
+        return groups(artists, artist);
+    }
+
+    /**
+     * Lists the songs by an artist, on an album, or both.
+     *
+     * @param artist An artist, or <code>null</code> for any artist
+     * @param album  An album, or <code>null</code> for any album
+     * @return The songs, by album then in the order they were added if an artist is given, or by artist otherwise.
+     */
+    public List<Song> getSongs(final String artist, final String album) {
+        lock.readLock().lock();
+        try {
+            Node node = artist != null ? artists.get(artist, album) : album != null ? albums.get(album) : artists;
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            List<Song> songs = new ArrayList<>(node.count);
+            node.collect(songs);
+            return songs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param root  The root of a tree
+     * @param names The path of a node below the root
+     * @return The children of the node, in order. Empty if there is no such node.
+     */
+    private List<Group> groups(final Node root, final String... names) {
+        lock.readLock().lock();
+        try {
+            Node node = root.get(names);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            List<Group> groups = new ArrayList<>(node.children.size());
+            node.children.forEach((name, child) -> groups.add(new Group(name.value, child.count,
+                    child.children.size())));
+            return groups;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * An artist or album, with the number of songs and subgroups it contains.
+     */
+    public static final class Group {
+        private final String name;
+        private final int songCount;
+        private final int groupCount;
+
+        Group(final String name, final int songCount, final int groupCount) {
+            this.name = name;
+            this.songCount = songCount;
+            this.groupCount = groupCount;
+        }
+
+        /**
+         * @return The artist or album. Empty for songs which have none.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Number of songs in this group.
+         */
+        public int getSongCount() {
+            return songCount;
+        }
+
+        /**
+         * @return Number of albums of an artist, or of artists of an album. Zero for the albums of an artist.
+         */
+        public int getGroupCount() {
+            return groupCount;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + songCount + ")";
+        }
+    }
+
+    /**
+     * The name of an artist or album, ordered by its sort key. Names which only differ in case or accents have the
+     * same sort key, so they are ordered by their exact text as well, and kept apart.
+     */
+    private static final class Name implements Comparable<Name> {
+        private final CollationKey sortKey;
+        private final String value;
+
+        Name(final Track track, final FieldKey key) {
+            this.sortKey = track.getSortKey(key);
+            this.value = track.get(key);
+        }
+
+        Name(final String value) {
+            this.sortKey = TextKeys.sortKey(value);
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(final Name other) {
+            int order = sortKey.compareTo(other.sortKey);
+            return order != 0 ? order : value.compareTo(other.value);
+        }
+    }
+
+    /**
+     * A group of songs in one of the trees. Only the nodes at the second level hold songs.
+     */
+    private static final class Node {
+        private final NavigableMap<Name, Node> children = new TreeMap<>();
+        private final Map<String, Song> songs = new LinkedHashMap<>();
+        private int count;
+
+        /**
+         * @param names The names of the nodes along a path, starting below this node
+         * @return The node at the end of the path, or <code>null</code> if there is none.
+         */
+        Node get(final String... names) {
+            Node node = this;
+            for (String name : names) {
+                if (name == null) {
+                    break;
+                }
+                node = node.children.get(new Name(name));
+                if (node == null) {
+                    return null;
+                }
+            }
+            return node;
+        }
+
+        void add(final Name first, final Name second, final String path, final Song song) {
+            Node parent = children.computeIfAbsent(first, name -> new Node());
+            Node leaf = parent.children.computeIfAbsent(second, name -> new Node());
+            if (leaf.songs.put(path, song) == null) {
+                count++;
+                parent.count++;
+                leaf.count++;
+            }
+        }
+
+        void remove(final Name first, final Name second, final String path) {
+            Node parent = children.get(first);
+            Node leaf = parent == null ? null : parent.children.get(second);
+            if (leaf == null || leaf.songs.remove(path) == null) {
+                return;
+            }
+            count--;
+            parent.count--;
+            if (--leaf.count == 0) {
+                parent.children.remove(second);
+            }
+            if (parent.count == 0) {
+                children.remove(first);
+            }
+        }
+
+        /**
+         * @param out Receives the songs below this node, in order
+         */
+        void collect(final List<Song> out) {
+            out.addAll(songs.values());
+            children.values().forEach(child -> child.collect(out));
+        }
+    }
+
+}
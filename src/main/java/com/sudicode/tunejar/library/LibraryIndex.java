@@ -0,0 +1,159 @@
+package com.sudicode.tunejar.library;
+
+import com.sudicode.tunejar.song.Song;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Maps the absolute path of every song in the music library to its {@link Song}. The index is filled while the
+ * directories are scanned, so playlists can be resolved against it without reading any files. Songs outside of the
+ * library are parsed on demand and remembered separately until the index is cleared. Both kinds of songs can be
+ * searched through a {@link SearchIndex}, which is kept up to date along with this index. The songs of the library
+ * can also be browsed by artist and album through a {@link BrowseIndex}, which is kept up to date in the same way.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class LibraryIndex {
+
+    private final Map<String, Song> library = new ConcurrentHashMap<>();
+    private final Map<String, Song> external = new ConcurrentHashMap<>();
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final BrowseIndex browseIndex = new BrowseIndex();
+
+    /**
+     * Adds a song to the library, replacing any song with the same file.
+     *
+     * @param song The song
+     */
+    public void put(final Song song) {
+        library.put(song.getAbsoluteFilename(), song);
+        external.remove(song.getAbsoluteFilename());
+        searchIndex.put(song);
+        browseIndex.put(song);
+    }
+
+    /**
+     * Brings the index up to date after a song has been retagged. If the song is a copy of the indexed one, such as
+     * the one in a user's playlist, the indexed song adopts its tags first, so that lookups return the new tags as
+     * well. Files which are not known to this index are ignored. The indexed song may be displayed, so this must be
+     * called on the GUI thread.
+     *
+     * @param song The retagged song, or any copy of it
+     */
+    public void reindex(final Song song) {
+        Song indexed = library.get(song.getAbsoluteFilename());
+        if (indexed != null) {
+            indexed.updateFrom(song);
+            searchIndex.put(indexed);
+            browseIndex.put(indexed);
+            return;
+        }
+        indexed = external.get(song.getAbsoluteFilename());
+        if (indexed != null) {
+            indexed.updateFrom(song);
+            searchIndex.put(indexed);
+        }
+    }
+
+    /**
+     * Makes another instance of a song in the library, such as the one in the master playlist, the library's song for
+     * its file, so that lookups return the instance which is displayed and edited. Since the instance has the same
+     * tags as the indexed song, nothing needs to be indexed again. Files which are not in the library are ignored.
+     *
+     * @param song A song with the same file and tags as the indexed one
+     */
+    public void adopt(final Song song) {
+        if (library.replace(song.getAbsoluteFilename(), song) != null) {
+            browseIndex.replace(song);
+        }
+    }
+
+    /**
+     * @param file An audio file
+     * @return The library's song for the file, or <code>null</code> if the file is not in the library.
+     */
+    public Song get(final File file) {
+        return library.get(file.getAbsolutePath());
+    }
+
+    /**
+     * Gets the song for a file. A file in the library is a lookup. Any other file is parsed the first time it is
+     * requested.
+     *
+     * @param file   An audio file
+     * @param parser Constructs a {@link Song} out of a file which is not in the library
+     * @return The song
+     * @throws IllegalArgumentException if the file is not in the library, and its type is not supported
+     */
+    public Song resolve(final File file, final Function<File, Song> parser) {
+        String path = file.getAbsolutePath();
+        Song song = library.get(path);
+        return song != null ? song : external.computeIfAbsent(path, p -> {
+            Song parsed = parser.apply(file);
+            searchIndex.put(parsed);
+            return parsed;
+        });
+    }
+
+    /**
+     * Removes a file, or every file in a directory, whether it is in the library or outside of it.
+     *
+     * @param file The file or directory
+     */
+    public void remove(final File file) {
+        String path = file.getAbsolutePath();
+        String prefix = path + File.separator;
+        library.keySet().removeIf(p -> p.equals(path) || p.startsWith(prefix));
+        external.keySet().removeIf(p -> p.equals(path) || p.startsWith(prefix));
+        searchIndex.remove(file);
+        browseIndex.remove(file);
+    }
+
+    /**
+     * Removes every song, in preparation for a new scan.
+     */
+    public void clear() {
+        library.clear();
+        external.clear();
+        searchIndex.clear();
+        browseIndex.clear();
+    }
+
+    /**
+     * Finds the songs matching a query, in the library as well as outside of it.
+     *
+     * @param query Words to look for, in any order
+     * @return The absolute path of each matching song, best matches first.
+     * @see SearchIndex#search(String)
+     */
+    public List<String> search(final String query) {
+        return searchIndex.search(query);
+    }
+
+    /**
+     * @return The songs of the library, by artist and album.
+     */
+    public BrowseIndex getBrowseIndex() {
+        return browseIndex;
+    }
+
+    /**
+     * @return The songs of the library, in no particular order.
+     */
+    public List<Song> getSongs() {
+        return new ArrayList<>(library.values());
+    }
+
+    /**
+     * @return Number of songs in the library.
+     */
+    public int size() {
+        return library.size();
+    }
+
+}
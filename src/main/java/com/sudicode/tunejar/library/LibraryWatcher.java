@@ -0,0 +1,413 @@
+package com.sudicode.tunejar.library;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sudicode.tunejar.config.Defaults;
+import com.sudicode.tunejar.song.SongFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches music directories for changes and reports them to a {@link Listener}. Directories are watched using a
+ * {@link WatchService} where possible. If the file system cannot be watched, or a directory cannot be registered (for
+ * example, because the inotify watch limit was reached), that directory is polled instead.
+ * <p>
+ * Events are coalesced per path and only reported once the watched directories have been quiet for
+ * {@link Defaults#WATCH_DEBOUNCE} milliseconds, so that a file which is still being copied is not parsed repeatedly.
+ */
+public final class LibraryWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryWatcher.class);
+
+    private final Listener listener;
+    private final WatchService watchService;
+    private final ScheduledExecutorService scheduler;
+    private final long pollInterval;
+    private final long debounce;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private final Map<File, ScheduledFuture<?>> pollers = new ConcurrentHashMap<>();
+    private final Set<Path> pending = new LinkedHashSet<>();
+    private ScheduledFuture<?> flush;
+    private long lastEvent;
+    private volatile boolean closed;
+
+    /**
+     * Receives the changes detected by a {@link LibraryWatcher}. Methods are invoked on a background thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a supported audio file was created or modified.
+         *
+         * @param file The audio file
+         */
+        void update(File file);
+
+        /**
+         * Called when a file or directory was deleted.
+         *
+         * @param file The deleted file or directory
+         */
+        void remove(File file);
+
+        /**
+         * Called when events for a directory were lost, so the directory should be scanned again.
+         *
+         * @param directory The directory
+         */
+        void overflow(File directory);
+
+    }
+
+    /**
+     * Construct a new {@link LibraryWatcher}, using the default {@link WatchService} if it is available.
+     *
+     * @param listener Receiver of the detected changes
+     */
+    public LibraryWatcher(final Listener listener) {
+        this(listener, newWatchService(), TimeUnit.SECONDS.toMillis(Defaults.WATCH_POLL_INTERVAL),
+                Defaults.WATCH_DEBOUNCE);
+    }
+
+    /**
+     * Construct a new {@link LibraryWatcher}.
+     *
+     * @param listener     Receiver of the detected changes
+     * @param watchService The {@link WatchService} to use, or <code>null</code> to poll every directory
+     * @param pollInterval Interval (in milliseconds) at which directories are polled
+     * @param debounce     Time (in milliseconds) to wait for further events before reporting a change
+     */
+    LibraryWatcher(final Listener listener, final WatchService watchService, final long pollInterval,
+                   final long debounce) {
+        this.listener = listener;
+        this.watchService = watchService;
+        this.pollInterval = pollInterval;
+        this.debounce = TimeUnit.MILLISECONDS.toNanos(debounce);
+
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("library-watcher-%d").setDaemon(true)
+                .build();
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        if (watchService != null) {
+            threadFactory.newThread(this::processEvents).start();
+        }
+    }
+
+    /**
+     * @return The default {@link WatchService}, or <code>null</code> if the file system cannot be watched.
+     */
+    private static WatchService newWatchService() {
+        try {
+            return FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("File system cannot be watched, falling back to polling.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts watching a directory and all of its subdirectories. Registration happens in the background.
+     *
+     * @param root The directory to watch
+     */
+    public void watch(final File root) {
+        scheduler.execute(() -> {
+            if (watchService != null) {
+                try {
+                    registerAll(root.toPath());
+                    logger.info("Watching directory: {}", root);
+                    return;
+                } catch (IOException | ClosedWatchServiceException e) {
+                    logger.warn("Unable to watch directory: " + root + ", falling back to polling.", e);
+                    cancelKeys(root.toPath());
+                }
+            }
+            startPolling(root);
+        });
+    }
+
+    /**
+     * Stops watching a directory.
+     *
+     * @param root The directory to stop watching
+     */
+    public void unwatch(final File root) {
+        scheduler.execute(() -> {
+            cancelKeys(root.toPath());
+            ScheduledFuture<?> poller = pollers.remove(root);
+            if (poller != null) {
+                poller.cancel(false);
+            }
+            logger.info("Stopped watching directory: {}", root);
+        });
+    }
+
+    /**
+     * Stops watching all directories. Pending changes are discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.error("Failed to close the watch service.", e);
+            }
+        }
+    }
+
+    // ------------------- Watching ------------------- //
+
+    /**
+     * Registers a directory and all of its subdirectories with the {@link WatchService}.
+     *
+     * @param start The top directory
+     * @throws IOException if a directory could not be registered
+     */
+    private void registerAll(final Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Cancels the registration of a directory and all of its subdirectories.
+     *
+     * @param root The top directory
+     */
+    private void cancelKeys(final Path root) {
+        keys.entrySet().removeIf(entry -> {
+            if (entry.getValue().startsWith(root)) {
+                entry.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Takes events from the {@link WatchService} until it is closed.
+     */
+    private void processEvents() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = keys.get(key);
+            if (dir != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        logger.warn("Events lost for directory: {}", dir);
+                        scheduler.execute(() -> listener.overflow(dir.toFile()));
+                        continue;
+                    }
+
+                    Path child = dir.resolve((Path) event.context());
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        scheduler.execute(() -> registerNewDirectory(child));
+                    } else {
+                        enqueue(child);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Registers a directory which was created after watching started. Files that were placed in it before the
+     * registration completed are reported as well.
+     *
+     * @param dir The new directory
+     */
+    private void registerNewDirectory(final Path dir) {
+        try {
+            registerAll(dir);
+        } catch (IOException | ClosedWatchServiceException e) {
+            logger.error("Unable to watch directory: " + dir, e);
+        }
+        try (Stream<Path> str = Files.walk(dir)) {
+            str.filter(Files::isRegularFile).forEach(this::enqueue);
+        } catch (IOException e) {
+            logger.error("Failed to access directory: " + dir, e);
+        }
+    }
+
+    /**
+     * Queues a changed path. It is reported once no further events have arrived for the debounce period.
+     *
+     * @param path The changed path
+     */
+    private void enqueue(final Path path) {
+        synchronized (pending) {
+            pending.add(path);
+            lastEvent = System.nanoTime();
+            if (flush == null && !closed) {
+                flush = scheduler.schedule(this::flush, debounce, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Reports the queued paths, unless an event arrived during the debounce period, in which case the flush is
+     * postponed.
+     */
+    private void flush() {
+        List<Path> paths;
+        synchronized (pending) {
+            long quiet = System.nanoTime() - lastEvent;
+            if (quiet < debounce) {
+                flush = scheduler.schedule(this::flush, debounce - quiet, TimeUnit.NANOSECONDS);
+                return;
+            }
+            paths = new ArrayList<>(pending);
+            pending.clear();
+            flush = null;
+        }
+        paths.forEach(this::dispatch);
+    }
+
+    /**
+     * Reports a single changed path to the listener.
+     *
+     * @param path The changed path
+     */
+    private void dispatch(final Path path) {
+        File file = path.toFile();
+        try {
+            if (file.isFile()) {
+                if (SongFactory.isSupported(file)) {
+                    listener.update(file);
+                }
+            } else if (!file.exists()) {
+                listener.remove(file);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to apply change to: " + file, e);
+        }
+    }
+
+    // ------------------- Polling ------------------- //
+
+    /**
+     * Starts polling a directory. The current contents of the directory are taken as the baseline.
+     *
+     * @param root The directory to poll
+     */
+    private void startPolling(final File root) {
+        Map<Path, Stamp> baseline = scan(root);
+        Map<Path, Stamp> snapshot = baseline != null ? baseline : new HashMap<>();
+        pollers.put(root, scheduler.scheduleWithFixedDelay(() -> poll(root, snapshot), pollInterval, pollInterval,
+                TimeUnit.MILLISECONDS));
+        logger.info("Polling directory: {}", root);
+    }
+
+    /**
+     * Compares the contents of a directory against its previous snapshot, and reports the differences.
+     *
+     * @param root     The directory to poll
+     * @param snapshot Previous contents of the directory, which will be updated
+     */
+    private void poll(final File root, final Map<Path, Stamp> snapshot) {
+        Map<Path, Stamp> current = scan(root);
+        if (current == null) {
+            return; // Keep the library as-is while the directory is unavailable
+        }
+        current.forEach((path, stamp) -> {
+            if (!stamp.equals(snapshot.get(path))) {
+                dispatch(path);
+            }
+        });
+        snapshot.keySet().stream().filter(path -> !current.containsKey(path)).forEach(this::dispatch);
+        snapshot.clear();
+        snapshot.putAll(current);
+    }
+
+    /**
+     * Lists the supported audio files in a directory.
+     *
+     * @param root The directory to scan
+     * @return A map of each audio file to its {@link Stamp}, or <code>null</code> if the directory could not be read
+     */
+    private static Map<Path, Stamp> scan(final File root) {
+        Map<Path, Stamp> files = new HashMap<>();
+        try (Stream<Path> str = Files.walk(root.toPath())) {
+            str.filter(path -> SongFactory.isSupported(path.toFile())).forEach(path -> {
+                File file = path.toFile();
+                files.put(path, new Stamp(file.length(), file.lastModified()));
+            });
+            return files;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to access directory: " + root, e);
+            return null;
+        }
+    }
+
+    /**
+     * Size and last-modified time of a polled file.
+     */
+    private static final class Stamp {
+        private final long size;
+        private final long lastModified;
+
+        private Stamp(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Stamp)) {
+                return false;
+            }
+            Stamp other = (Stamp) o;
+            return size == other.size && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.sudicode.tunejar.library;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.sudicode.tunejar.song.Playlist;
+import com.sudicode.tunejar.song.Song;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Searches the library and every playlist at once. The index maps the absolute path of each song to the playlists it
+ * appears in, and queries are answered by the {@link LibraryIndex}, so the cost of a search depends on the number of
+ * matching songs rather than the number of playlists. A playlist is only read again after it has changed, as told by
+ * {@link Playlist#getVersion()}.
+ * <p>
+ * Playlists are not thread-safe, so this class must only be used from the thread which modifies them.
+ */
+public final class PlaylistIndex {
+
+    private final LibraryIndex libraryIndex;
+    private final Map<Playlist, Entry> entries = new IdentityHashMap<>();
+    private final ListMultimap<String, Entry> memberships = ArrayListMultimap.create();
+
+    /**
+     * Construct a new {@link PlaylistIndex}.
+     *
+     * @param libraryIndex Index used to answer queries
+     */
+    public PlaylistIndex(final LibraryIndex libraryIndex) {
+        this.libraryIndex = libraryIndex;
+    }
+
+    /**
+     * Finds the songs matching a query in each playlist.
+     *
+     * @param query     Words to look for, in any order
+     * @param playlists Every playlist to search, in the order that results should be grouped. Playlists which were
+     *                  searched before, but are not in this list, are forgotten.
+     * @return The absolute path of each matching song, best matches first, by playlist. Playlists without a match are
+     * left out.
+     */
+    public Map<Playlist, List<String>> search(final String query, final List<Playlist> playlists) {
+        update(playlists);
+
+        Map<Entry, List<String>> hits = new HashMap<>();
+        for (String path : libraryIndex.search(query)) {
+            for (Entry entry : memberships.get(path)) {
+                hits.computeIfAbsent(entry, e -> new ArrayList<>()).add(path);
+            }
+        }
+
+        List<Entry> matching = new ArrayList<>(hits.keySet());
+        matching.sort(Comparator.comparingInt(entry -> entry.position));
+        Map<Playlist, List<String>> results = new LinkedHashMap<>();
+        for (Entry entry : matching) {
+            results.put(entry.playlist, hits.get(entry));
+        }
+        return results;
+    }
+
+    /**
+     * Reads the playlists which have changed since the last search, and forgets the ones which are gone.
+     *
+     * @param playlists Every playlist
+     */
+    private void update(final List<Playlist> playlists) {
+        Set<Playlist> current = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < playlists.size(); i++) {
+            Playlist playlist = playlists.get(i);
+            current.add(playlist);
+            Entry entry = entries.computeIfAbsent(playlist, Entry::new);
+            entry.position = i;
+            if (entry.paths == null || entry.version != playlist.getVersion()) {
+                index(entry);
+            }
+        }
+
+        entries.values().removeIf(entry -> {
+            if (current.contains(entry.playlist)) {
+                return false;
+            }
+            unindex(entry);
+            return true;
+        });
+    }
+
+    /**
+     * Replaces the memberships of a playlist with its current songs. A song which appears more than once is indexed
+     * once.
+     *
+     * @param entry The playlist's entry
+     */
+    private void index(final Entry entry) {
+        unindex(entry);
+        Set<String> paths = new LinkedHashSet<>();
+        for (Song song : entry.playlist) {
+            paths.add(song.getAbsoluteFilename());
+        }
+        for (String path : paths) {
+            memberships.put(path, entry);
+        }
+        entry.paths = paths.toArray(new String[paths.size()]);
+        entry.version = entry.playlist.getVersion();
+    }
+
+    /**
+     * Removes the memberships of a playlist.
+     *
+     * @param entry The playlist's entry
+     */
+    private void unindex(final Entry entry) {
+        if (entry.paths == null) {
+            return;
+        }
+        for (String path : entry.paths) {
+            memberships.remove(path, entry);
+        }
+        entry.paths = null;
+    }
+
+    /**
+     * What the index knows about a playlist.
+     */
+    private static final class Entry {
+        private final Playlist playlist;
+
+        /**
+         * Position of the playlist in the last search.
+         */
+        private int position;
+
+        /**
+         * Version of the playlist when it was indexed.
+         */
+        private int version;
+
+        /**
+         * Distinct songs of the playlist when it was indexed, or <code>null</code> if it has not been indexed.
+         */
+        private String[] paths;
+
+        private Entry(final Playlist playlist) {
+            this.playlist = playlist;
+        }
+    }
+
+}
@@ -0,0 +1,223 @@
+package com.sudicode.tunejar.library;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Scans directories for songs in three stages:
+ * <ol>
+ * <li>A single walker thread traverses the directories and queues each supported audio file.</li>
+ * <li>A fixed number of parser threads take files from that queue and parse them.</li>
+ * <li>The caller collects the parsed songs using {@link #poll(long, TimeUnit)}.</li>
+ * </ol>
+ * Both queues are bounded, so a stage which runs ahead blocks until the next stage catches up. The memory used by a
+ * scan therefore does not depend on the number of files, and the number of concurrent reads is limited to the number
+ * of parser threads.
+ */
+public final class ScanPipeline implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanPipeline.class);
+
+    /**
+     * Queued after the last file, once for each parser thread.
+     */
+    private static final Path END = Paths.get("");
+
+    private final Collection<File> directories;
+    private final Function<File, Song> parser;
+    private final int parserThreads;
+    private final BlockingQueue<Path> files;
+    private final BlockingQueue<Song> songs;
+    private final CountDownLatch parsersDone;
+    private final ScanStatistics statistics;
+    private final AtomicInteger found = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private ExecutorService walkerExecutor;
+    private ExecutorService parserExecutor;
+
+    /**
+     * Construct a new {@link ScanPipeline}. Nothing happens until {@link #start()} is called.
+     *
+     * @param directories   The directories to scan
+     * @param parser        Constructs a {@link Song} out of an audio file
+     * @param parserThreads Number of files to parse in parallel
+     * @param queueCapacity Maximum number of files (or songs) waiting between two stages
+     */
+    public ScanPipeline(final Collection<File> directories, final Function<File, Song> parser,
+                        final int parserThreads, final int queueCapacity) {
+        this(directories, parser, parserThreads, queueCapacity, new ScanStatistics());
+    }
+
+    /**
+     * Construct a new {@link ScanPipeline} which records its progress. Nothing happens until {@link #start()} is
+     * called.
+     *
+     * @param directories   The directories to scan
+     * @param parser        Constructs a {@link Song} out of an audio file
+     * @param parserThreads Number of files to parse in parallel
+     * @param queueCapacity Maximum number of files (or songs) waiting between two stages
+     * @param statistics    Receives the metrics of the walk and the queues. Parse times are recorded by the parser
+     *                      itself, such as a {@link com.sudicode.tunejar.song.SongCache} with the same statistics
+     */
+    public ScanPipeline(final Collection<File> directories, final Function<File, Song> parser,
+                        final int parserThreads, final int queueCapacity, final ScanStatistics statistics) {
+        this.statistics = statistics;
+        this.directories = new ArrayList<>(directories);
+        this.parser = parser;
+        this.parserThreads = parserThreads;
+        this.files = new ArrayBlockingQueue<>(queueCapacity);
+        this.songs = new ArrayBlockingQueue<>(queueCapacity);
+        this.parsersDone = new CountDownLatch(parserThreads);
+    }
+
+    /**
+     * Starts the walker and parser threads.
+     */
+    public synchronized void start() {
+        walkerExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("scan-walker-%d").setDaemon(true).build());
+        parserExecutor = Executors.newFixedThreadPool(parserThreads,
+                new ThreadFactoryBuilder().setNameFormat("scan-parser-%d").setDaemon(true).build());
+        walkerExecutor.execute(this::walk);
+        for (int i = 0; i < parserThreads; i++) {
+            parserExecutor.execute(this::parse);
+        }
+        walkerExecutor.shutdown();
+        parserExecutor.shutdown();
+    }
+
+    /**
+     * Retrieves the next parsed song, waiting up to the specified time if none is available yet.
+     *
+     * @param timeout How long to wait
+     * @param unit    Unit of <code>timeout</code>
+     * @return The next song, or <code>null</code> if none became available in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Song poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        Song song = songs.poll(timeout, unit);
+        statistics.queueDepths(files.size(), songs.size());
+        return song;
+    }
+
+    /**
+     * @return <code>true</code> if every file has been parsed and every song has been collected.
+     */
+    public boolean isDone() {
+        return parsersDone.getCount() == 0 && songs.isEmpty();
+    }
+
+    /**
+     * @return Number of audio files found so far.
+     */
+    public int getFound() {
+        return found.get();
+    }
+
+    /**
+     * @return Number of audio files which could not be parsed.
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Stops the scan. Threads which are still running are interrupted.
+     */
+    @Override
+    public synchronized void close() {
+        if (walkerExecutor != null) {
+            walkerExecutor.shutdownNow();
+            parserExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Walker stage. Traverses each directory and queues the supported audio files.
+     */
+    private void walk() {
+        statistics.walkStarted();
+        try {
+            for (File directory : directories) {
+                if (directory == null || !directory.isDirectory()) {
+                    logger.error("Failed to access directory: " + directory + ", skipping...");
+                    continue;
+                }
+
+                // Depth first search through each directory for supported files
+                try (Stream<Path> str = Files.walk(directory.toPath())) {
+                    Iterator<Path> paths = str.filter(path -> SongFactory.isSupported(path.toFile())).iterator();
+                    while (paths.hasNext()) {
+                        files.put(paths.next());
+                        found.incrementAndGet();
+                        statistics.fileDiscovered(files.size());
+                    }
+                } catch (IOException | UncheckedIOException e) {
+                    logger.error("Failed to access directory: " + directory, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Directory walk cancelled.");
+            return;
+        } catch (RuntimeException e) {
+            logger.error("Directory walk failed.", e);
+        } finally {
+            statistics.walkFinished();
+        }
+
+        try {
+            for (int i = 0; i < parserThreads; i++) {
+                files.put(END);
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Directory walk cancelled.");
+        }
+    }
+
+    /**
+     * Parser stage. Parses queued files until the end of the queue is reached.
+     */
+    private void parse() {
+        try {
+            for (Path path = files.take(); path != END; path = files.take()) {
+                try {
+                    Song song = parser.apply(path.toFile());
+                    songs.put(song);
+                    statistics.songQueued(songs.size());
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    statistics.parseFailed(path.toFile());
+                    logger.error("Failed to parse: " + path, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Parsing cancelled.");
+        } finally {
+            parsersDone.countDown();
+        }
+    }
+
+}
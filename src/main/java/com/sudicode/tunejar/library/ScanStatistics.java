@@ -0,0 +1,293 @@
+package com.sudicode.tunejar.library;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics of the phases of a library scan: the directory walk, parsing, the queues between them, and publishing the
+ * results to the song table. Comparing these shows whether a slow scan is bound by the disk or by the parsers.
+ * <p>
+ * Parse times are reported by the {@link SongCache}, so that they only include files which were actually parsed,
+ * rather than songs constructed from the cache.
+ * <p>
+ * This class is thread-safe. Once {@link #register() registered}, the metrics can be inspected with any JMX client,
+ * such as JConsole.
+ */
+public final class ScanStatistics implements ScanStatisticsMXBean, SongCache.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanStatistics.class);
+
+    /**
+     * Name under which the statistics are registered.
+     */
+    public static final String OBJECT_NAME = "com.sudicode.tunejar:type=ScanStatistics";
+
+    private static final long[] BUCKETS_MILLIS = {1, 5, 10, 50, 100, 500, 1000};
+
+    private final AtomicLong walkStart = new AtomicLong();
+    private final AtomicLong walkEnd = new AtomicLong();
+    private final AtomicLong filesDiscovered = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong parseFailures = new AtomicLong();
+    private final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+    private final AtomicInteger fileQueueDepth = new AtomicInteger();
+    private final AtomicInteger peakFileQueueDepth = new AtomicInteger();
+    private final AtomicInteger songQueueDepth = new AtomicInteger();
+    private final AtomicInteger peakSongQueueDepth = new AtomicInteger();
+    private final AtomicLong publishedBatches = new AtomicLong();
+    private final AtomicLong publishNanos = new AtomicLong();
+
+    /**
+     * Registers these statistics with the platform MBean server, replacing any statistics registered before.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            logger.error("Failed to register scan statistics: " + OBJECT_NAME, e);
+        }
+    }
+
+    // ------------------- Recording ------------------- //
+
+    /**
+     * Marks the start of the directory walk.
+     */
+    void walkStarted() {
+        walkStart.set(System.nanoTime());
+        walkEnd.set(0);
+    }
+
+    /**
+     * Marks the end of the directory walk.
+     */
+    void walkFinished() {
+        walkEnd.set(System.nanoTime());
+    }
+
+    /**
+     * Records a supported audio file discovered by the directory walk.
+     *
+     * @param queueDepth Number of files waiting to be parsed, including the discovered file
+     */
+    void fileDiscovered(final int queueDepth) {
+        filesDiscovered.incrementAndGet();
+        recordDepth(fileQueueDepth, peakFileQueueDepth, queueDepth);
+    }
+
+    /**
+     * Records a song waiting to be collected.
+     *
+     * @param queueDepth Number of songs waiting to be collected, including this one
+     */
+    void songQueued(final int queueDepth) {
+        recordDepth(songQueueDepth, peakSongQueueDepth, queueDepth);
+    }
+
+    @Override
+    public void cacheHit(final File file) {
+        cacheHits.incrementAndGet();
+    }
+
+    @Override
+    public void fileParsed(final Song song, final long nanos) {
+        String type = song.getClass().getSimpleName();
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < BUCKETS_MILLIS.length && millis >= BUCKETS_MILLIS[bucket]) {
+            bucket++;
+        }
+        Latency latency = latencies.computeIfAbsent(type, t -> new Latency());
+        latency.histogram.incrementAndGet(bucket);
+        latency.nanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void parseFailed(final File file) {
+        parseFailures.incrementAndGet();
+    }
+
+    /**
+     * Records the current queue depths.
+     *
+     * @param files Number of files waiting to be parsed
+     * @param songs Number of songs waiting to be collected
+     */
+    void queueDepths(final int files, final int songs) {
+        recordDepth(fileQueueDepth, peakFileQueueDepth, files);
+        recordDepth(songQueueDepth, peakSongQueueDepth, songs);
+    }
+
+    /**
+     * Records a batch of songs added to the song table.
+     *
+     * @param nanos Time spent on the GUI thread
+     */
+    public void batchPublished(final long nanos) {
+        publishedBatches.incrementAndGet();
+        publishNanos.addAndGet(nanos);
+    }
+
+    private static void recordDepth(final AtomicInteger depth, final AtomicInteger peak, final int value) {
+        depth.set(value);
+        peak.accumulateAndGet(value, Math::max);
+    }
+
+    // ------------------- MXBean ------------------- //
+
+    @Override
+    public long getWalkTimeMillis() {
+        long start = walkStart.get();
+        long end = walkEnd.get();
+        if (start == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis((end == 0 ? System.nanoTime() : end) - start);
+    }
+
+    @Override
+    public long getFilesDiscovered() {
+        return filesDiscovered.get();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    @Override
+    public long getParseFailures() {
+        return parseFailures.get();
+    }
+
+    @Override
+    public long[] getParseLatencyBucketsMillis() {
+        return BUCKETS_MILLIS.clone();
+    }
+
+    @Override
+    public Map<String, long[]> getParseLatencyHistogram() {
+        Map<String, long[]> result = new TreeMap<>();
+        latencies.forEach((type, latency) -> result.put(type, latency.counts()));
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getMeanParseMillis() {
+        Map<String, Double> result = new TreeMap<>();
+        latencies.forEach((type, latency) -> {
+            long count = 0;
+            for (long c : latency.counts()) {
+                count += c;
+            }
+            result.put(type, latency.nanos.get() / 1e6 / Math.max(1, count));
+        });
+        return result;
+    }
+
+    @Override
+    public int getFileQueueDepth() {
+        return fileQueueDepth.get();
+    }
+
+    @Override
+    public int getPeakFileQueueDepth() {
+        return peakFileQueueDepth.get();
+    }
+
+    @Override
+    public int getSongQueueDepth() {
+        return songQueueDepth.get();
+    }
+
+    @Override
+    public int getPeakSongQueueDepth() {
+        return peakSongQueueDepth.get();
+    }
+
+    @Override
+    public long getPublishedBatches() {
+        return publishedBatches.get();
+    }
+
+    @Override
+    public double getPublishTimeMillis() {
+        return publishNanos.get() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        walkStart.set(0);
+        walkEnd.set(0);
+        filesDiscovered.set(0);
+        cacheHits.set(0);
+        parseFailures.set(0);
+        latencies.clear();
+        fileQueueDepth.set(0);
+        peakFileQueueDepth.set(0);
+        songQueueDepth.set(0);
+        peakSongQueueDepth.set(0);
+        publishedBatches.set(0);
+        publishNanos.set(0);
+    }
+
+    /**
+     * @return A one-line summary of the statistics, suitable for logging.
+     */
+    public String summary() {
+        DecimalFormat format = new DecimalFormat("0.00");
+        StringBuilder sb = new StringBuilder();
+        sb.append("Walk: ").append(getFilesDiscovered()).append(" files in ").append(getWalkTimeMillis())
+                .append("ms; Parse: ").append(getCacheHits()).append(" cached,");
+        getMeanParseMillis().forEach((type, mean) -> sb.append(' ').append(type).append(" mean ")
+                .append(format.format(mean)).append("ms"));
+        sb.append(", ").append(getParseFailures()).append(" failed; Queues: ").append(getFileQueueDepth())
+                .append(" files (peak ").append(getPeakFileQueueDepth()).append("), ").append(getSongQueueDepth())
+                .append(" songs (peak ").append(getPeakSongQueueDepth()).append("); Publish: ")
+                .append(getPublishedBatches()).append(" batches in ").append(format.format(getPublishTimeMillis()))
+                .append("ms");
+        return sb.toString();
+    }
+
+    /**
+     * Parse times of one type of song. The histogram and the total are kept together, so that neither can be read
+     * without the other.
+     */
+    private static final class Latency {
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS_MILLIS.length + 1);
+        private final AtomicLong nanos = new AtomicLong();
+
+        /**
+         * @return Number of files whose parse time fell into each bucket.
+         */
+        long[] counts() {
+            long[] counts = new long[histogram.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = histogram.get(i);
+            }
+            return counts;
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.sudicode.tunejar.library;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link ScanStatistics}. All values describe the most recent scan of the music library.
+ */
+public interface ScanStatisticsMXBean {
+
+    /**
+     * @return Time (in milliseconds) taken to walk the directories, or the time elapsed so far if the walk is still
+     * in progress.
+     */
+    long getWalkTimeMillis();
+
+    /**
+     * @return Number of supported audio files discovered.
+     */
+    long getFilesDiscovered();
+
+    /**
+     * @return Number of songs constructed from the song cache instead of being parsed. These are not included in the
+     * parse times.
+     */
+    long getCacheHits();
+
+    /**
+     * @return Number of files which could not be parsed.
+     */
+    long getParseFailures();
+
+    /**
+     * @return Upper bounds (in milliseconds) of the buckets of {@link #getParseLatencyHistogram()}. The last bucket
+     * has no upper bound.
+     */
+    long[] getParseLatencyBucketsMillis();
+
+    /**
+     * @return Map of song type (such as <code>Mp3Song</code>) to the number of files whose parse time fell into
+     * each bucket.
+     */
+    Map<String, long[]> getParseLatencyHistogram();
+
+    /**
+     * @return Map of song type to its mean parse time in milliseconds.
+     */
+    Map<String, Double> getMeanParseMillis();
+
+    /**
+     * @return Number of files waiting to be parsed.
+     */
+    int getFileQueueDepth();
+
+    /**
+     * @return Largest number of files that were waiting to be parsed at once. If this reaches the queue capacity,
+     * the scan is parser-bound. If it stays near zero, the scan is bound by the directory walk.
+     */
+    int getPeakFileQueueDepth();
+
+    /**
+     * @return Number of parsed songs waiting to be added to the song table.
+     */
+    int getSongQueueDepth();
+
+    /**
+     * @return Largest number of parsed songs that were waiting at once.
+     */
+    int getPeakSongQueueDepth();
+
+    /**
+     * @return Number of batches of songs added to the song table.
+     */
+    long getPublishedBatches();
+
+    /**
+     * @return Total time (in milliseconds) spent on the GUI thread adding songs to the song table.
+     */
+    double getPublishTimeMillis();
+
+    /**
+     * Clears all values.
+     */
+    void reset();
+
+}
@@ -0,0 +1,368 @@
+package com.sudicode.tunejar.library;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.TextKeys;
+import com.sudicode.tunejar.song.Track;
+import org.jaudiotagger.tag.FieldKey;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over the title, artist and album of songs, by absolute path. Queries are parsed by
+ * {@link SearchQuery}: every word of a query must match the start of a word in one of those fields, so results can
+ * be shown as the user types, and fields, phrases and exclusions can be given as well.
+ * <p>
+ * Matches are ranked by the field they were found in (title, then artist, then album), with whole words ranked above
+ * prefixes. Case and accents are ignored, using the search keys which each {@link Track} keeps. The index is safe to
+ * query from any thread while it is being updated.
+ */
+public final class SearchIndex {
+
+    private static final int TITLE = SearchQuery.TITLE;
+    private static final int ARTIST = SearchQuery.ARTIST;
+    private static final int ALBUM = SearchQuery.ALBUM;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Documents are identified by small integers, which are reused once a document is removed.
+     */
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> paths = new ArrayList<>();
+    private final List<Track> tracks = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+
+    /**
+     * Adds a song, replacing the entry for the same file if there is one. Like the song table, an untitled song is
+     * indexed under its file name.
+     *
+     * @param song The song
+     */
+    public void put(final Song song) {
+        Track track = song.getTrack();
+        String path = song.getAbsoluteFilename();
+        lock.writeLock().lock();
+        try {
+            Integer id = ids.get(path);
+            if (id != null) {
+                unindex(id);
+            } else {
+                id = freeIds.isEmpty() ? paths.size() : freeIds.pop();
+                if (id == paths.size()) {
+                    paths.add(null);
+                    tracks.add(null);
+                }
+                ids.put(path, id);
+                paths.set(id, path);
+            }
+            index(id, track);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a file, or every file in a directory.
+     *
+     * @param file The file or directory
+     */
+    public void remove(final File file) {
+        String path = file.getAbsolutePath();
+        String prefix = path + File.separator;
+        lock.writeLock().lock();
+        try {
+            ids.entrySet().removeIf(entry -> {
+                if (entry.getKey().equals(path) || entry.getKey().startsWith(prefix)) {
+                    unindex(entry.getValue());
+                    paths.set(entry.getValue(), null);
+                    freeIds.push(entry.getValue());
+                    return true;
+                }
+                return false;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every song.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            paths.clear();
+            tracks.clear();
+            freeIds.clear();
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of songs in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the songs matching a query. Each clause of the query is answered from the postings, and the results of
+     * the clauses are intersected, so songs which cannot match are never looked at.
+     *
+     * @param query The query, as described by {@link SearchQuery}
+     * @return The absolute path of each matching song, best matches first. Empty if the query has no words.
+     */
+    public List<String> search(final String query) {
+        SearchQuery parsed = SearchQuery.parse(query);
+        if (parsed.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            // Score of each document matching every clause so far. Lower is better.
+            Map<Integer, Integer> scores = null;
+            for (SearchQuery.Clause clause : parsed.getClauses()) {
+                if (clause.isNegated()) {
+                    continue;
+                }
+                Map<Integer, Integer> previous = scores;
+                scores = match(clause, previous);
+                if (previous != null) {
+                    scores.replaceAll((id, score) -> score + previous.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+
+            // A query which only excludes songs starts out with every song.
+            if (scores == null) {
+                scores = new HashMap<>();
+                for (Integer id : ids.values()) {
+                    scores.put(id, 0);
+                }
+            }
+            for (SearchQuery.Clause clause : parsed.getClauses()) {
+                if (clause.isNegated()) {
+                    scores.keySet().removeAll(match(clause, scores).keySet());
+                }
+            }
+
+            List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Integer, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+            List<String> results = new ArrayList<>(ranked.size());
+            for (Map.Entry<Integer, Integer> entry : ranked) {
+                results.add(paths.get(entry.getKey()));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the documents matching a clause, ignoring its negation. Called with the read lock held.
+     *
+     * @param clause     The clause
+     * @param candidates If not <code>null</code>, only these documents are considered
+     * @return The score of each matching document for this clause.
+     */
+    private Map<Integer, Integer> match(final SearchQuery.Clause clause, final Map<Integer, Integer> candidates) {
+        List<String> words = clause.getWords();
+        Map<Integer, Integer> matches = candidates;
+        for (int i = 0; i < words.size(); i++) {
+            matches = match(words.get(i), clause.isPrefix() && i == words.size() - 1, clause.getFields(), matches);
+            if (matches.isEmpty()) {
+                return matches;
+            }
+        }
+        if (!clause.isPhrase()) {
+            return matches;
+        }
+
+        // The postings tell which words a document contains, but not where. Check the order of the words in the
+        // documents which contain all of them.
+        Map<Integer, Integer> phrases = new HashMap<>();
+        for (Integer id : matches.keySet()) {
+            int field = clause.bestField(tracks.get(id));
+            if (field != 0) {
+                phrases.put(id, score(field, true));
+            }
+        }
+        return phrases;
+    }
+
+    /**
+     * Finds the documents containing a word. Called with the read lock held.
+     *
+     * @param word       The word
+     * @param prefix     Whether words which start with the given word also match
+     * @param fields     The fields to look in, as a mask
+     * @param candidates If not <code>null</code>, only these documents are considered
+     * @return The best score of each matching document for this word.
+     */
+    private Map<Integer, Integer> match(final String word, final boolean prefix, final int fields,
+                                        final Map<Integer, Integer> candidates) {
+        Map<Integer, Integer> matches = new HashMap<>();
+        NavigableMap<String, Postings> range = prefix
+                ? postings.subMap(word, true, word + Character.MAX_VALUE, false)
+                : postings.subMap(word, true, word, true);
+        for (Map.Entry<String, Postings> entry : range.entrySet()) {
+            boolean exact = entry.getKey().length() == word.length();
+            Postings list = entry.getValue();
+            for (int i = 0; i < list.size; i++) {
+                int id = list.entries[i] >>> 3;
+                int found = list.entries[i] & fields;
+                if (found != 0 && (candidates == null || candidates.containsKey(id))) {
+                    matches.merge(id, score(found, exact), Math::min);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @param fields The fields in which a word was found
+     * @param exact  Whether the whole word matched, rather than just a prefix
+     * @return The score of the match. Lower is better.
+     */
+    private static int score(final int fields, final boolean exact) {
+        int rank = (fields & TITLE) != 0 ? 0 : (fields & ARTIST) != 0 ? 1 : 2;
+        return rank * 2 + (exact ? 0 : 1);
+    }
+
+    /**
+     * Adds the words of a track to the postings. Called with the write lock held.
+     *
+     * @param id    The document
+     * @param track Its metadata
+     */
+    private void index(final int id, final Track track) {
+        words(track).forEach((word, mask) -> postings.computeIfAbsent(word, w -> new Postings()).add(id << 3 | mask));
+        tracks.set(id, track);
+    }
+
+    /**
+     * Removes the words of a document from the postings. Called with the write lock held.
+     *
+     * @param id The document
+     */
+    private void unindex(final int id) {
+        for (String word : words(tracks.get(id)).keySet()) {
+            Postings list = postings.get(word);
+            if (list.remove(id) == 0) {
+                postings.remove(word);
+            }
+        }
+        tracks.set(id, null);
+    }
+
+    /**
+     * @param track A track
+     * @return The distinct words of the track, with the fields containing each of them.
+     */
+    private static Map<String, Integer> words(final Track track) {
+        Map<String, Integer> fields = new HashMap<>();
+        split(track.getSearchKey(FieldKey.TITLE)).forEach(word -> fields.merge(word, TITLE, (a, b) -> a | b));
+        split(track.getSearchKey(FieldKey.ARTIST)).forEach(word -> fields.merge(word, ARTIST, (a, b) -> a | b));
+        split(track.getSearchKey(FieldKey.ALBUM)).forEach(word -> fields.merge(word, ALBUM, (a, b) -> a | b));
+        return fields;
+    }
+
+    /**
+     * Folds text and splits it into words, the same way that songs are indexed.
+     *
+     * @param text The text
+     * @return The words, in order.
+     * @see TextKeys#fold(String)
+     */
+    static List<String> tokenize(final String text) {
+        return split(TextKeys.fold(text));
+    }
+
+    /**
+     * Splits folded text into words, at every character which is neither a letter nor a digit.
+     *
+     * @param folded The folded text
+     * @return The words, in order.
+     */
+    static List<String> split(final String folded) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Documents containing a word. Each entry holds a document ID in the upper bits, and the fields containing the
+     * word in the lower three bits. Entries are sorted, and thus ordered by document, so that a document can be found
+     * by binary search.
+     */
+    private static final class Postings {
+        private int[] entries = new int[2];
+        private int size;
+
+        /**
+         * @param entry The entry to add, for a document which is not in the list yet
+         */
+        private void add(final int entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+
+            // New documents usually have the highest ID so far, so try the end of the list first.
+            int index = size == 0 || entries[size - 1] < entry
+                    ? size
+                    : -Arrays.binarySearch(entries, 0, size, entry) - 1;
+            System.arraycopy(entries, index, entries, index + 1, size - index);
+            entries[index] = entry;
+            size++;
+        }
+
+        /**
+         * @param id The document to remove
+         * @return The number of entries left.
+         */
+        private int remove(final int id) {
+            // No entry has an empty field mask, so the search always stops at the first entry of the document, if any.
+            int index = -Arrays.binarySearch(entries, 0, size, id << 3) - 1;
+            if (index < size && entries[index] >>> 3 == id) {
+                System.arraycopy(entries, index + 1, entries, index, size - index - 1);
+                size--;
+            }
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package com.sudicode.tunejar.library;
+
+import com.google.common.collect.ImmutableMap;
+import com.sudicode.tunejar.song.Track;
+import org.jaudiotagger.tag.FieldKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A parsed search query. A query is a list of clauses, all of which must be satisfied:
+ * <ul>
+ * <li><code>daft</code> matches songs with a word starting with "daft".</li>
+ * <li><code>"daft punk"</code> matches the whole words "daft punk", in that order. A trailing <code>*</code>, as in
+ * <code>"daft pu*"</code>, lets the last word be a prefix.</li>
+ * <li><code>artist:daft</code> or <code>artist:"daft punk"</code> only look at one field: <code>title</code>,
+ * <code>artist</code> or <code>album</code>.</li>
+ * <li><code>-live</code> excludes the songs which the rest of the clause would match.</li>
+ * </ul>
+ * Unquoted text which contains several words, such as <code>AC/DC</code>, is treated as a phrase.
+ */
+final class SearchQuery {
+
+    /**
+     * Field masks, as stored in the postings of a {@link SearchIndex}.
+     */
+    static final int TITLE = 1;
+    static final int ARTIST = 2;
+    static final int ALBUM = 4;
+    static final int ANY = TITLE | ARTIST | ALBUM;
+
+    private static final Map<String, Integer> FIELD_NAMES = ImmutableMap.of("title", TITLE, "artist", ARTIST,
+            "album", ALBUM);
+
+    private final List<Clause> clauses;
+
+    private SearchQuery(final List<Clause> clauses) {
+        this.clauses = Collections.unmodifiableList(clauses);
+    }
+
+    /**
+     * @return The clauses of this query, in the order they were written.
+     */
+    List<Clause> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * @return <code>true</code> if the query has no clauses, and therefore matches nothing.
+     */
+    boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    /**
+     * Parses a query. Parsing never fails; text which is not part of the syntax is searched for.
+     *
+     * @param text The query
+     * @return The parsed query.
+     */
+    static SearchQuery parse(final String text) {
+        List<Clause> clauses = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                i++;
+                continue;
+            }
+
+            // Negation
+            boolean negated = false;
+            if (text.charAt(i) == '-' && i + 1 < text.length() && !Character.isWhitespace(text.charAt(i + 1))) {
+                negated = true;
+                i++;
+            }
+
+            // Field
+            int fields = ANY;
+            int colon = text.indexOf(':', i);
+            if (colon > i) {
+                Integer field = FIELD_NAMES.get(text.substring(i, colon).toLowerCase(Locale.ROOT));
+                if (field != null) {
+                    fields = field;
+                    i = colon + 1;
+                }
+            }
+
+            // Phrase or word
+            String term;
+            boolean prefix;
+            if (i < text.length() && text.charAt(i) == '"') {
+                int close = text.indexOf('"', i + 1);
+                int end = close < 0 ? text.length() : close;
+                term = text.substring(i + 1, end);
+                prefix = term.trim().endsWith("*");
+                i = close < 0 ? end : end + 1;
+            } else {
+                int end = i;
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+                    end++;
+                }
+                term = text.substring(i, end);
+                prefix = true;
+                i = end;
+            }
+
+            List<String> words = SearchIndex.tokenize(term);
+            if (!words.isEmpty()) {
+                clauses.add(new Clause(words, fields, prefix, negated));
+            }
+        }
+        return new SearchQuery(clauses);
+    }
+
+    /**
+     * A single condition of a query.
+     */
+    static final class Clause implements Predicate<Track> {
+        private final List<String> words;
+        private final int fields;
+        private final boolean prefix;
+        private final boolean negated;
+
+        Clause(final List<String> words, final int fields, final boolean prefix, final boolean negated) {
+            this.words = Collections.unmodifiableList(words);
+            this.fields = fields;
+            this.prefix = prefix;
+            this.negated = negated;
+        }
+
+        /**
+         * @return The folded words to look for, in order.
+         */
+        List<String> getWords() {
+            return words;
+        }
+
+        /**
+         * @return The fields to look in, as a mask.
+         */
+        int getFields() {
+            return fields;
+        }
+
+        /**
+         * @return <code>true</code> if the last word only has to be the start of a word.
+         */
+        boolean isPrefix() {
+            return prefix;
+        }
+
+        /**
+         * @return <code>true</code> if songs matching this clause are excluded.
+         */
+        boolean isNegated() {
+            return negated;
+        }
+
+        /**
+         * @return <code>true</code> if this clause has several words, which must appear next to each other.
+         */
+        boolean isPhrase() {
+            return words.size() > 1;
+        }
+
+        /**
+         * Tests whether a track contains this clause's words, next to each other, in one of its fields. Negation is
+         * not taken into account.
+         *
+         * @param track The track
+         * @return <code>true</code> if the words were found.
+         */
+        @Override
+        public boolean test(final Track track) {
+            return bestField(track) != 0;
+        }
+
+        /**
+         * @param track The track
+         * @return The first of title, artist and album containing this clause's words, or 0 if none of them do.
+         */
+        int bestField(final Track track) {
+            for (int field = TITLE; field <= ALBUM; field <<= 1) {
+                if ((fields & field) != 0 && contains(SearchIndex.split(track.getSearchKey(fieldKey(field))))) {
+                    return field;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @param text The words of a field
+         * @return <code>true</code> if the words of this clause appear in the text, in order, next to each other.
+         */
+        private boolean contains(final List<String> text) {
+            int last = words.size() - 1;
+            for (int start = 0; start + last < text.size(); start++) {
+                boolean found = true;
+                for (int j = 0; j <= last && found; j++) {
+                    String word = text.get(start + j);
+                    found = j == last && prefix ? word.startsWith(words.get(j)) : word.equals(words.get(j));
+                }
+                if (found) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return (negated ? "-" : "") + Integer.toBinaryString(fields) + ":" + words + (prefix ? "*" : "");
+        }
+    }
+
+    /**
+     * @param field A field mask with a single bit set
+     * @return The field.
+     */
+    private static FieldKey fieldKey(final int field) {
+        return field == TITLE ? FieldKey.TITLE : field == ARTIST ? FieldKey.ARTIST : FieldKey.ALBUM;
+    }
+
+}
@@ -1,9 +1,12 @@
 package com.sudicode.tunejar.menu;
 
+import com.sudicode.tunejar.config.StorageType;
 import com.sudicode.tunejar.player.PlayerController;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.RadioMenuItem;
+import javafx.scene.control.ToggleGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,4 +40,24 @@ public class AdvancedMenu extends PlayerMenu {
         });
     }
 
+    /**
+     * Lets the user choose the type of storage that holds the music directories. The choice determines how many
+     * songs are parsed in parallel, and takes effect on the next scan.
+     */
+    public void initStorageMenu() {
+        ToggleGroup group = new ToggleGroup();
+        for (StorageType storageType : StorageType.values()) {
+            RadioMenuItem nextItem = new RadioMenuItem(storageType.getDisplayName());
+            nextItem.setOnAction(event -> {
+                controller.getPlayer().getOptions().setStorageType(storageType);
+                logger.info("Storage type set to: {}", storageType);
+            });
+            nextItem.setToggleGroup(group);
+            if (storageType == controller.getPlayer().getOptions().getStorageType()) {
+                group.selectToggle(nextItem);
+            }
+            controller.getStorageMenu().getItems().add(nextItem);
+        }
+    }
+
 }
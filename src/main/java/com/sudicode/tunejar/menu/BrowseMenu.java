@@ -0,0 +1,196 @@
+package com.sudicode.tunejar.menu;
+
+import com.sudicode.tunejar.config.Defaults;
+import com.sudicode.tunejar.library.BrowseIndex;
+import com.sudicode.tunejar.player.PlayerController;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TreeCell;
+import javafx.scene.control.TreeItem;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Helper class for the Artists and Albums tabs, which browse the library through its {@link BrowseIndex}. Selecting
+ * an artist, one of their albums, or an album displays its songs straight from the index.
+ */
+public class BrowseMenu extends PlayerMenu {
+
+    private static final String UNKNOWN_ARTIST = "Unknown Artist";
+    private static final String UNKNOWN_ALBUM = "Unknown Album";
+
+    private final TreeItem<BrowseIndex.Group> artists = new TreeItem<>();
+
+    /**
+     * Refreshes the displayed tab while the library is being scanned.
+     */
+    private final Timeline refresher = new Timeline(new KeyFrame(Duration.millis(Defaults.PUBLISH_INTERVAL),
+            event -> refresh()));
+
+    /**
+     * The index which is displayed, and its version, so that an unchanged index is not displayed again.
+     */
+    private BrowseIndex shownIndex;
+    private int shownVersion;
+
+    public BrowseMenu(PlayerController controller) {
+        super(controller);
+    }
+
+    /**
+     * Sets up the Artists and Albums tabs.
+     */
+    public void init() {
+        controller.getArtistTree().setRoot(artists);
+        controller.getArtistTree().setShowRoot(false);
+        controller.getArtistTree().setCellFactory(view -> new TreeCell<BrowseIndex.Group>() {
+            @Override
+            protected void updateItem(BrowseIndex.Group group, boolean empty) {
+                super.updateItem(group, empty);
+                setText(empty || group == null ? null
+                        : label(group, getTreeItem().getParent() == artists ? UNKNOWN_ARTIST : UNKNOWN_ALBUM));
+            }
+        });
+        controller.getAlbumList().setCellFactory(view -> new ListCell<BrowseIndex.Group>() {
+            @Override
+            protected void updateItem(BrowseIndex.Group group, boolean empty) {
+                super.updateItem(group, empty);
+                setText(empty || group == null ? null : label(group, UNKNOWN_ALBUM));
+            }
+        });
+
+        // When an artist or album is selected, display its songs.
+        controller.getArtistTree().getSelectionModel().selectedItemProperty().addListener((obs, oldItem, item) -> {
+            if (item == null) {
+                return;
+            }
+            if (item.getParent() == artists) {
+                show(item.getValue().getName(), null);
+            } else {
+                show(item.getParent().getValue().getName(), item.getValue().getName());
+            }
+        });
+        controller.getAlbumList().getSelectionModel().selectedItemProperty().addListener((obs, oldGroup, group) -> {
+            if (group != null) {
+                show(null, group.getName());
+            }
+        });
+
+        // When a playlist is selected, such as one which was just imported, show the playlist table again.
+        controller.getPlaylistTable().getSelectionModel().selectedItemProperty().addListener((obs, oldList, list) -> {
+            if (list != null) {
+                controller.getSidebar().getSelectionModel().selectFirst();
+            }
+        });
+
+        // Only the displayed tab is kept up to date.
+        refresher.setCycleCount(Animation.INDEFINITE);
+        controller.getSidebar().getSelectionModel().selectedItemProperty().addListener((obs, oldTab, tab) -> {
+            if (isBrowsing(tab)) {
+                refresh();
+                refresher.play();
+            } else {
+                refresher.stop();
+                if (controller.getPlaylistTable().getSelectionModel().isEmpty()
+                        && !controller.getPlaylistList().isEmpty()) {
+                    controller.getPlaylistTable().getSelectionModel().select(0);
+                }
+            }
+        });
+    }
+
+    /**
+     * Displays the artists and albums of the library again, if it has changed since they were last displayed.
+     * Expanded artists stay expanded.
+     */
+    public void refresh() {
+        BrowseIndex index = getIndex();
+        if (index == null || !isBrowsing(controller.getSidebar().getSelectionModel().getSelectedItem())
+                || (index == shownIndex && index.getVersion() == shownVersion)) {
+            return;
+        }
+        shownIndex = index;
+        shownVersion = index.getVersion();
+
+        Set<String> expanded = new HashSet<>();
+        artists.getChildren().forEach(item -> {
+            if (item.isExpanded()) {
+                expanded.add(item.getValue().getName());
+            }
+        });
+        List<TreeItem<BrowseIndex.Group>> items = new ArrayList<>();
+        for (BrowseIndex.Group artist : index.getArtists()) {
+            TreeItem<BrowseIndex.Group> item = new TreeItem<BrowseIndex.Group>(artist) {
+                private boolean loaded;
+
+                @Override
+                public boolean isLeaf() {
+                    return false;
+                }
+
+                @Override
+                public ObservableList<TreeItem<BrowseIndex.Group>> getChildren() {
+                    if (!loaded) {
+                        loaded = true;
+                        List<TreeItem<BrowseIndex.Group>> albums = new ArrayList<>();
+                        index.getAlbums(artist.getName()).forEach(album -> albums.add(new TreeItem<>(album)));
+                        super.getChildren().setAll(albums);
+                    }
+                    return super.getChildren();
+                }
+            };
+            item.setExpanded(expanded.contains(artist.getName()));
+            items.add(item);
+        }
+        artists.getChildren().setAll(items);
+        controller.getAlbumList().getItems().setAll(index.getAlbums());
+    }
+
+    /**
+     * Displays the songs by an artist, on an album, or both.
+     *
+     * @param artist An artist, or <code>null</code> for any artist
+     * @param album  An album, or <code>null</code> for any album
+     */
+    private void show(String artist, String album) {
+        BrowseIndex index = getIndex();
+        if (index != null) {
+            controller.showSongs(FXCollections.observableArrayList(index.getSongs(artist, album)));
+        }
+    }
+
+    /**
+     * @return The index of the library, or <code>null</code> if the library has not been loaded.
+     */
+    private BrowseIndex getIndex() {
+        return controller.getPlayer().getLibraryIndex() == null ? null
+                : controller.getPlayer().getLibraryIndex().getBrowseIndex();
+    }
+
+    /**
+     * @param tab A tab of the sidebar
+     * @return <code>true</code> if the tab browses the library.
+     */
+    private boolean isBrowsing(Tab tab) {
+        return tab == controller.getArtistTab() || tab == controller.getAlbumTab();
+    }
+
+    /**
+     * @param group   An artist or album
+     * @param unknown Displayed instead of an empty name
+     * @return The name of the group, with its number of songs.
+     */
+    private static String label(BrowseIndex.Group group, String unknown) {
+        return (group.getName().isEmpty() ? unknown : group.getName()) + " (" + group.getSongCount() + ")";
+    }
+
+}
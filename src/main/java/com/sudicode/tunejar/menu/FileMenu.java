@@ -94,7 +94,6 @@ public class FileMenu extends PlayerMenu {
 
     public void removeDirectory() {
         if (controller.getPlayer().removeDirectory()) {
-            controller.getPlayer().refresh();
             controller.getPlayer().stopSong();
         }
     }
@@ -134,7 +133,7 @@ public class FileMenu extends PlayerMenu {
         try (BufferedReader reader = new BufferedReader(new FileReader(m3uFile))) {
             for (String line = reader.readLine(); line != null; line = reader.readLine()) {
                 try {
-                    songs.add(SongFactory.create(new File(line)));
+                    songs.add(controller.getPlayer().getLibraryIndex().resolve(new File(line), SongFactory::create));
                 } catch (IllegalArgumentException e) {
                     logger.error("Could not add file: " + line, e);
                 }
@@ -32,7 +32,7 @@ public class PlaybackMenu extends PlayerMenu {
     /** Plays or resumes the selected song. */
     public void play() {
         int index = controller.getSongTable().getFocusModel().getFocusedIndex();
-        if (controller.getSongList().isEmpty() || index < 0 || index >= controller.getSongList().size()) {
+        if (index < 0 || index >= controller.getSongTable().getItems().size()) {
             controller.getStatus().setText("No song selected.");
             return;
         }
@@ -53,7 +53,7 @@ public class PlaybackMenu extends PlayerMenu {
         try {
             // Have the playlist point to the appropriate song, then play it
             controller.getSongTable().getSelectionModel().clearAndSelect(row);
-            controller.getPlayer().playSong(controller.getSongList().get(row));
+            controller.getPlayer().playSong(controller.getSongTable().getItems().get(row));
             controller.getPlayer().setEndOfSongAction(controller::playNext);
 
             // Update the status bar accordingly
@@ -118,7 +118,7 @@ public class PlaybackMenu extends PlayerMenu {
         }
 
         // If the playlist is empty, return.
-        if (controller.getSongList().isEmpty()) {
+        if (controller.getSongTable().getItems().isEmpty()) {
             controller.getStatus().setText("The playlist is empty.");
             return;
         }
@@ -133,7 +133,7 @@ public class PlaybackMenu extends PlayerMenu {
             }
             row = shuffledRowList.get(shuffledRowIter);
         } else {
-            row = controller.getSongList().indexOf(controller.getPlayer().getNowPlaying());
+            row = controller.getSongTable().getItems().indexOf(controller.getPlayer().getNowPlaying());
             row = (row <= 0) ? 0 : row - 1;
         }
         play(row);
@@ -149,7 +149,7 @@ public class PlaybackMenu extends PlayerMenu {
         }
 
         // If the playlist is empty, return.
-        if (controller.getSongList().isEmpty()) {
+        if (controller.getSongTable().getItems().isEmpty()) {
             controller.getStatus().setText("The playlist is empty.");
             return;
         }
@@ -165,8 +165,8 @@ public class PlaybackMenu extends PlayerMenu {
             // Play the next song in the shuffled list.
             row = shuffledRowList.get(shuffledRowIter);
         } else {
-            row = controller.getSongList().indexOf(controller.getPlayer().getNowPlaying());
-            row = (row + 1 >= controller.getSongList().size()) ? 0 : row + 1;
+            row = controller.getSongTable().getItems().indexOf(controller.getPlayer().getNowPlaying());
+            row = (row + 1 >= controller.getSongTable().getItems().size()) ? 0 : row + 1;
         }
         play(row);
         controller.getSongTable().getSelectionModel().select(row);
@@ -194,12 +194,12 @@ public class PlaybackMenu extends PlayerMenu {
         if (isShuffleEnabled()) {
             logger.debug("Shuffle: ON");
             List<Integer> list = new ArrayList<>();
-            for (int i = 0; i < controller.getSongList().size(); i++) {
+            for (int i = 0; i < controller.getSongTable().getItems().size(); i++) {
                 list.add(i);
             }
             Collections.shuffle(list);
             if (controller.getPlayer().getNowPlaying() != null) {
-                list.add(0, controller.getSongList().indexOf(controller.getPlayer().getNowPlaying()));
+                list.add(0, controller.getSongTable().getItems().indexOf(controller.getPlayer().getNowPlaying()));
             }
             logger.debug("Built shuffled row list");
             shuffledRowList = list;
@@ -19,7 +19,6 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,7 +47,6 @@ public class PlaylistMenu extends PlayerMenu {
         controller.focus(controller.getPlaylistTable(), controller.getPlaylistList().size() - 1);
 
         controller.setSongList(FXCollections.observableArrayList(p));
-        controller.getSongTable().setItems(controller.getSongList());
         logger.info("Loaded playlist: " + p.getName());
 
         // Restore sort order
@@ -110,11 +108,8 @@ public class PlaylistMenu extends PlayerMenu {
         try {
             // Rename the playlist and save changes.
             Options options = controller.getPlayer().getOptions();
+            options.renamePlaylist(oldName, playlistName.get());
             pl.setName(playlistName.get());
-            pl.save(options);
-            LinkedHashMap<String, String> playlists = options.getPlaylists();
-            playlists.remove(oldName);
-            options.setPlaylists(playlists);
             controller.refreshTables();
 
             // Also, rename the playlist in the "Song -> Add to...<PLAYLIST>"
@@ -152,10 +147,7 @@ public class PlaylistMenu extends PlayerMenu {
             return;
         }
         try {
-            Options options = controller.getPlayer().getOptions();
-            LinkedHashMap<String, String> playlists = options.getPlaylists();
-            playlists.remove(pl.getName());
-            options.setPlaylists(playlists);
+            controller.getPlayer().getOptions().deletePlaylist(pl.getName());
             controller.getPlaylistList().remove(pl);
 
             // Remove the playlist from the "Song -> Add To..." menu.
@@ -1,27 +1,50 @@
 package com.sudicode.tunejar.menu;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sudicode.tunejar.TuneJarException;
+import com.sudicode.tunejar.config.Defaults;
+import com.sudicode.tunejar.library.LibraryIndex;
 import com.sudicode.tunejar.player.PlayerController;
 import com.sudicode.tunejar.song.Playlist;
 import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongFactory;
 import com.sudicode.tunejar.song.WavSong;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
+import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonBar;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.TextInputDialog;
+import javafx.scene.control.Tooltip;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeView;
+import javafx.scene.input.KeyCode;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Priority;
+import javafx.util.Duration;
+import org.jaudiotagger.tag.FieldKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Helper class for handling the Song menu.
@@ -30,12 +53,26 @@ public class SongMenu extends PlayerMenu {
 
     private static final Logger logger = LoggerFactory.getLogger(SongMenu.class);
 
+    private static final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("song-search-%d").setDaemon(true).build());
+
+    private static final String SEARCH_HELP = "Examples: daft pu, \"one more time\", artist:\"daft punk\", "
+            + "album:discovery -live";
+
+    private final PauseTransition searchDelay = new PauseTransition(Duration.millis(Defaults.SEARCH_DELAY));
+
+    /**
+     * Incremented for each query, so that only the results of the latest one are shown.
+     */
+    private int searchGeneration;
+
     public SongMenu(PlayerController controller) {
         super(controller);
     }
 
     /**
-     * Creates a user dialog that allows modification of the selected song.
+     * Creates a user dialog that allows modification of the selected song. If
+     * several songs are selected, the bulk editor is opened instead.
      */
     public void editSong() {
         ObservableList<Song> songsToEdit = controller.getSongTable().getSelectionModel().getSelectedItems();
@@ -46,7 +83,7 @@ public class SongMenu extends PlayerMenu {
         }
 
         if (songsToEdit.size() > 1) {
-            controller.getStatus().setText("You can only edit one song at a time.");
+            editSongs(new ArrayList<>(songsToEdit));
             return;
         }
 
@@ -110,20 +147,168 @@ public class SongMenu extends PlayerMenu {
 
         Optional<List<String>> newParams = editor.showAndWait();
         newParams.ifPresent(list -> {
-            try {
-                songToEdit.setTitle(list.get(0));
-                songToEdit.setArtist(list.get(1));
-                songToEdit.setAlbum(list.get(2));
-                controller.refreshTables();
-                controller.getStatus().setText("Edit successful.");
-            } catch (Exception e) {
-                logger.error("Edit unsuccessful.", e);
-                controller.refreshTables();
-                controller.getStatus().setText("Edit unsuccessful.");
+            Map<FieldKey, String> changes = new EnumMap<>(FieldKey.class);
+            if (!list.get(0).equals(songToEdit.getTitle())) {
+                changes.put(FieldKey.TITLE, list.get(0));
             }
+            if (!list.get(1).equals(songToEdit.getArtist())) {
+                changes.put(FieldKey.ARTIST, list.get(1));
+            }
+            if (!list.get(2).equals(songToEdit.getAlbum())) {
+                changes.put(FieldKey.ALBUM, list.get(2));
+            }
+
+            // Shown straight away, and rolled back if the file cannot be written
+            controller.getPlayer().getTagWriteQueue().submit(songToEdit, changes);
+            controller.getPlayer().getLibraryIndex().reindex(songToEdit);
+            controller.refreshTables();
         });
     }
 
+    /**
+     * Creates a user dialog that applies the same changes to several songs.
+     * Fields shared by every song are filled in, and only the fields that the
+     * user changes are written. The songs are written in parallel in the
+     * background, and any failures are summarized once all of them are done.
+     * Songs which cannot be edited are skipped, and reported in the summary.
+     *
+     * @param songs The selected songs
+     */
+    private void editSongs(List<Song> songs) {
+        List<Song> songsToEdit = new ArrayList<>();
+        Map<Song, String> skipped = new HashMap<>();
+        for (Song song : songs) {
+            if (song instanceof WavSong) {
+                skipped.put(song, "The file does not support editing.");
+            } else if (!song.canEdit()) {
+                skipped.put(song, "The file is locked.");
+            } else {
+                songsToEdit.add(song);
+            }
+        }
+        if (songsToEdit.isEmpty()) {
+            controller.getStatus().setText("The files do not support editing or are locked.");
+            return;
+        }
+
+        // Create the editor dialog.
+        Dialog<Map<FieldKey, String>> editor = new Dialog<>();
+        editor.setTitle("Song Editor");
+        editor.setHeaderText("Editing " + songsToEdit.size() + " songs"
+                + (skipped.isEmpty() ? "" : " (" + skipped.size() + " cannot be edited and will be skipped)"));
+
+        // Set the button types.
+        ButtonType saveButton = new ButtonType("Save", ButtonBar.ButtonData.OK_DONE);
+        editor.getDialogPane().getButtonTypes().addAll(saveButton, ButtonType.CANCEL);
+
+        // Create the labels and fields. Fields which differ between songs start out empty.
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20, 150, 10, 10));
+
+        Map<FieldKey, String> labels = new EnumMap<>(FieldKey.class);
+        labels.put(FieldKey.TITLE, "Title");
+        labels.put(FieldKey.ARTIST, "Artist");
+        labels.put(FieldKey.ALBUM, "Album");
+        Map<FieldKey, String> initialValues = new EnumMap<>(FieldKey.class);
+        Map<FieldKey, TextField> fields = new EnumMap<>(FieldKey.class);
+        int row = 0;
+        for (Map.Entry<FieldKey, String> label : labels.entrySet()) {
+            FieldKey key = label.getKey();
+            String first = songsToEdit.get(0).getTrack().get(key);
+            boolean shared = songsToEdit.stream().allMatch(song -> song.getTrack().get(key).equals(first));
+            initialValues.put(key, shared ? first : "");
+
+            TextField field = new TextField(initialValues.get(key));
+            field.setPromptText(shared ? label.getValue() : "(Keep)");
+            fields.put(key, field);
+            grid.add(new Label(label.getValue() + ":"), 0, row);
+            grid.add(field, 1, row++);
+        }
+
+        editor.getDialogPane().setContent(grid);
+
+        // Convert the result to the fields which were changed.
+        editor.setResultConverter(param -> {
+            if (param == saveButton) {
+                Map<FieldKey, String> changes = new EnumMap<>(FieldKey.class);
+                fields.forEach((key, field) -> {
+                    if (!field.getText().equals(initialValues.get(key))) {
+                        changes.put(key, field.getText());
+                    }
+                });
+                return changes;
+            }
+            return null;
+        });
+
+        Optional<Map<FieldKey, String>> result = editor.showAndWait();
+        if (!result.isPresent() || result.get().isEmpty()) {
+            return;
+        }
+
+        // Shown straight away, and rolled back for each file that cannot be written
+        int total = songsToEdit.size();
+        controller.getPlayer().getTagWriteQueue()
+                .submitAll(songsToEdit, result.get(), done -> controller.getStatus().setText(
+                        "Editing songs... " + new DecimalFormat("#0%").format((double) done / total)))
+                .thenAccept(failures -> Platform.runLater(() -> showEditSummary(total, skipped, failures)));
+        songsToEdit.forEach(controller.getPlayer().getLibraryIndex()::reindex);
+        controller.refreshTables();
+    }
+
+    /**
+     * Reports the outcome of a bulk edit. If any song could not be edited,
+     * or was skipped, the reason for each one is listed in an alert.
+     *
+     * @param total    Number of songs edited
+     * @param skipped  The reason each skipped song was not edited, by song
+     * @param failures The cause of each failure, by song
+     */
+    private void showEditSummary(int total, Map<Song, String> skipped, Map<Song, TuneJarException> failures) {
+        failures.keySet().forEach(controller.getPlayer().getLibraryIndex()::reindex);
+        controller.refreshTables();
+        String skippedText = skipped.isEmpty() ? "" : " Skipped " + skipped.size() + " songs.";
+        if (failures.isEmpty() && skipped.isEmpty()) {
+            controller.getStatus().setText("Edited " + total + " songs.");
+            return;
+        }
+        controller.getStatus().setText("Edited " + (total - failures.size()) + " of " + total + " songs."
+                + skippedText);
+        logger.warn("{} of {} songs could not be edited, and {} were skipped.", failures.size(), total,
+                skipped.size());
+
+        Map<Song, String> reasons = new HashMap<>(skipped);
+        failures.forEach((song, failure) -> reasons.put(song, String.valueOf(failure.getCause())));
+        StringBuilder details = new StringBuilder();
+        reasons.entrySet().stream()
+                .sorted(Comparator.comparing(reason -> reason.getKey().getAbsoluteFilename()))
+                .forEach(reason -> details.append(reason.getKey().getAbsoluteFilename()).append(": ")
+                        .append(reason.getValue()).append(System.lineSeparator()));
+
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Song Editor");
+        alert.setHeaderText(failures.size() + " of " + total + " songs could not be edited." + skippedText);
+        alert.setContentText(failures.isEmpty()
+                ? "The skipped songs do not support editing or are locked."
+                : "Their changes have been undone.");
+
+        TextArea textArea = new TextArea(details.toString());
+        textArea.setEditable(false);
+        textArea.setWrapText(false);
+        textArea.setMaxWidth(Double.MAX_VALUE);
+        textArea.setMaxHeight(Double.MAX_VALUE);
+        GridPane.setVgrow(textArea, Priority.ALWAYS);
+        GridPane.setHgrow(textArea, Priority.ALWAYS);
+        GridPane gridPane = new GridPane();
+        gridPane.setMaxWidth(Double.MAX_VALUE);
+        gridPane.add(textArea, 0, 0);
+
+        alert.getDialogPane().setExpandableContent(gridPane);
+        alert.show();
+    }
+
     /**
      * Creates a new playlist and adds the selected songs to it.
      */
@@ -165,72 +350,152 @@ public class SongMenu extends PlayerMenu {
         pl.save(controller.getPlayer().getOptions());
     }
 
+    /**
+     * Filters the song table as the user types in the search field. Queries are looked up in the library's search
+     * index on a background thread, once the field has been left unchanged for {@link Defaults#SEARCH_DELAY}
+     * milliseconds. The song list itself is never modified.
+     */
+    public void initSearch() {
+        controller.getSearchField().setTooltip(new Tooltip(SEARCH_HELP));
+        searchDelay.setOnFinished(event -> filter(controller.getSearchField().getText()));
+        controller.getSearchField().textProperty().addListener((obs, oldText, newText) -> searchDelay.playFromStart());
+
+        // When ESCAPE is pressed, clear the search and return to the song table.
+        controller.getSearchField().setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ESCAPE) {
+                controller.getSearchField().clear();
+                controller.getSongTable().requestFocus();
+            }
+        });
+    }
+
+    /**
+     * Moves the keyboard focus to the search field.
+     */
     public void search() {
+        controller.getSearchField().requestFocus();
+        controller.getSearchField().selectAll();
+    }
+
+    /**
+     * Searches the library and every playlist at once, then shows the matching songs grouped by playlist. Opening a
+     * playlist from the results displays it, filtered by the same query.
+     */
+    public void searchAllPlaylists() {
         // Create the dialog box.
-        TextInputDialog dialog = new TextInputDialog();
-        dialog.setTitle("Search");
-        dialog.setHeaderText("What are you looking for?");
+        TextInputDialog dialog = new TextInputDialog(controller.getSearchField().getText());
+        dialog.setTitle("Search All Playlists");
+        dialog.setHeaderText("What are you looking for?\n" + SEARCH_HELP);
         dialog.setContentText("Enter search term:");
-        Optional<String> keyword = dialog.showAndWait();
+        Optional<String> query = dialog.showAndWait();
+        if (!query.isPresent() || query.get().trim().isEmpty()) {
+            return;
+        }
 
         // Perform the search.
-        if (keyword.isPresent() && keyword.get().trim().length() > 0) {
-            int count = search(keyword.get().trim().toLowerCase());
-            if (count == 0) {
-                controller.getStatus().setText("No matches found.");
-            } else {
-                controller.getStatus().setText("Found " + count + " matching songs.");
+        Map<Playlist, List<String>> results = controller.getPlayer().getPlaylistIndex().search(query.get(),
+                controller.getPlaylistList());
+        if (results.isEmpty()) {
+            controller.getStatus().setText("No matches found.");
+            return;
+        }
+        int count = results.values().stream().mapToInt(List::size).sum();
+        String summary = "Found " + count + " matches in " + results.size() + " playlists.";
+        controller.getStatus().setText(summary);
+
+        // Group the matches by playlist. The songs of a playlist are only listed once it is expanded.
+        LibraryIndex libraryIndex = controller.getPlayer().getLibraryIndex();
+        TreeItem<String> root = new TreeItem<>();
+        Map<TreeItem<String>, Playlist> playlists = new HashMap<>();
+        results.forEach((playlist, paths) -> {
+            TreeItem<String> item = new TreeItem<String>(playlist.getName() + " (" + paths.size() + ")") {
+                private boolean loaded;
+
+                @Override
+                public boolean isLeaf() {
+                    return false;
+                }
+
+                @Override
+                public ObservableList<TreeItem<String>> getChildren() {
+                    if (!loaded) {
+                        loaded = true;
+                        List<TreeItem<String>> songs = new ArrayList<>(paths.size());
+                        for (String path : paths) {
+                            songs.add(new TreeItem<>(libraryIndex.resolve(new File(path), SongFactory::create)
+                                    .toString()));
+                        }
+                        super.getChildren().setAll(songs);
+                    }
+                    return super.getChildren();
+                }
+            };
+            playlists.put(item, playlist);
+            root.getChildren().add(item);
+        });
+
+        // Display the results.
+        TreeView<String> tree = new TreeView<>(root);
+        tree.setShowRoot(false);
+        Dialog<Void> viewer = new Dialog<>();
+        viewer.setTitle("Search All Playlists");
+        viewer.setHeaderText(summary);
+        viewer.getDialogPane().setContent(tree);
+        viewer.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+        // When a result is double clicked, open its playlist.
+        tree.setOnMouseClicked(event -> {
+            TreeItem<String> selected = tree.getSelectionModel().getSelectedItem();
+            if (event.getClickCount() == 2 && selected != null) {
+                Playlist playlist = playlists.get(selected.getParent() == root ? selected : selected.getParent());
+                controller.getPlaylistTable().getSelectionModel().select(playlist);
+                controller.getSearchField().setText(query.get());
+                viewer.close();
             }
+        });
+        viewer.show();
+    }
+
+    /**
+     * Filters the song table again after the song list has changed, if a search is in progress.
+     */
+    public void scheduleSearch() {
+        if (!controller.getSearchField().getText().trim().isEmpty()) {
+            searchDelay.playFromStart();
         }
     }
 
     /**
-     * Arranges the playlist such that songs matching the keyword have priority.
+     * Shows only the songs matching a query in the song table.
      *
-     * @param keyword The keyword
-     * @return The amount of songs that match
+     * @param query The query, or a blank string to show every song
      */
-    public int search(String keyword) {
-        // Assign priorities to the songs, depending on relevance.
-        int count = 0;
-        Map<Song, Integer> priorityMap = new HashMap<>();
-        for (Song s : controller.getSongList()) {
-            if (s.getTitle().toLowerCase().contains(keyword)) {
-                priorityMap.put(s, 1);
-                count++;
-            } else if (s.getArtist().toLowerCase().contains(keyword)) {
-                priorityMap.put(s, 2);
-                count++;
-            } else if (s.getAlbum().toLowerCase().contains(keyword)) {
-                priorityMap.put(s, 3);
-                count++;
-            } else {
-                priorityMap.put(s, 4);
-            }
+    private void filter(String query) {
+        int generation = ++searchGeneration;
+        if (query.trim().isEmpty()) {
+            controller.setSongFilter(null);
+            controller.getStatus().setText("");
+            controller.getPlaybackMenu().buildShuffledRowList();
+            return;
         }
 
-        // Sort the song by relevance first, then by the song table's
-        // comparator.
-        Collections.sort(controller.getSongList(), (o1, o2) -> {
-            int result = priorityMap.get(o1) - priorityMap.get(o2);
-            if (result == 0) {
-                if (controller.getSongTable().getComparator() == null) {
-                    return 0;
-                } else {
-                    return controller.getSongTable().getComparator().compare(o1, o2);
-                }
-            } else {
-                return result;
-            }
-        });
-
-        // Select all relevant songs.
-        controller.getSongTable().scrollTo(0);
-        controller.getSongTable().getSelectionModel().clearSelection();
-        for (int i = 0; i < count; i++) {
-            controller.getSongTable().getSelectionModel().select(i);
-        }
-        return count;
+        LibraryIndex libraryIndex = controller.getPlayer().getLibraryIndex();
+        CompletableFuture.supplyAsync(() -> new HashSet<>(libraryIndex.search(query)), searchExecutor)
+                .thenAcceptAsync(matches -> {
+                    // Discard results which were overtaken by a newer query.
+                    if (generation != searchGeneration) {
+                        return;
+                    }
+                    controller.setSongFilter(s -> matches.contains(s.getAbsoluteFilename()));
+                    int count = controller.getSongTable().getItems().size();
+                    controller.getStatus().setText(count == 0 ? "No matches found."
+                            : "Found " + count + " matching songs.");
+                    controller.getPlaybackMenu().buildShuffledRowList();
+                }, Platform::runLater)
+                .exceptionally(e -> {
+                    logger.error("Search failed: " + query, e);
+                    return null;
+                });
     }
 
 }
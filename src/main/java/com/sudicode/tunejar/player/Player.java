@@ -1,13 +1,24 @@
 package com.sudicode.tunejar.player;
 
-import com.google.common.collect.HashMultiset;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sudicode.tunejar.TuneJarException;
 import com.sudicode.tunejar.config.Defaults;
 import com.sudicode.tunejar.config.Options;
+import com.sudicode.tunejar.config.StorageType;
+import com.sudicode.tunejar.library.LibraryIndex;
+import com.sudicode.tunejar.library.LibraryWatcher;
+import com.sudicode.tunejar.library.PlaylistIndex;
+import com.sudicode.tunejar.library.ScanPipeline;
+import com.sudicode.tunejar.library.ScanStatistics;
+import com.sudicode.tunejar.song.LibrarySnapshot;
 import com.sudicode.tunejar.song.Playlist;
 import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongCache;
 import com.sudicode.tunejar.song.SongFactory;
+import com.sudicode.tunejar.song.TagWriteQueue;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
 import javafx.event.EventHandler;
 import javafx.fxml.FXMLLoader;
@@ -30,7 +41,6 @@ import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import javafx.util.Duration;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,26 +52,26 @@ import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.text.DecimalFormat;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Queue;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Stream;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Main class.
@@ -84,8 +94,27 @@ public class Player extends Application {
     private Playlist masterPlaylist;
     private LinkedHashSet<File> directories;
     private Options options;
+    private SongCache songCache;
+    private LibrarySnapshot librarySnapshot;
+    private LibraryIndex libraryIndex;
+    private PlaylistIndex playlistIndex;
+    private LibraryWatcher libraryWatcher;
+    private Refresher refresher;
     private double mediaPlayerSpeed;
 
+    private final ScanStatistics scanStatistics = new ScanStatistics();
+
+    // The index which tasks on the refresh executor add songs to: the one built by the latest refresh, even before it
+    // is displayed. Only used on the refresh executor.
+    private LibraryIndex targetIndex;
+
+    // Refreshes run one at a time, so a superseded refresh always finishes before the next one starts
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("refresher-%d").setDaemon(true).build());
+
+    private final TagWriteQueue tagWriteQueue = new TagWriteQueue(Defaults.TAG_WRITER_THREADS, Platform::runLater,
+            this::tagWriteFailed);
+
     /**
      * Starts the application.
      *
@@ -103,6 +132,8 @@ public class Player extends Application {
     @Override
     public void start(Stage primaryStage) {
         try {
+            scanStatistics.register();
+            tagWriteQueue.pendingProperty().addListener((obs, oldVal, newVal) -> showTagWriteStatus());
             init(primaryStage);
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
@@ -122,6 +153,9 @@ public class Player extends Application {
         setInstance(this);
         setSpeed(1);
         setOptions(new Options(Defaults.PREFERENCES_NODE));
+        songCache = new SongCache(Defaults.SONG_CACHE, scanStatistics);
+        librarySnapshot = new LibrarySnapshot(Defaults.LIBRARY_SNAPSHOT);
+        setLibraryIndex(new LibraryIndex());
 
         // Load the FXML file and display the interface.
         primaryStage = stage;
@@ -202,10 +236,30 @@ public class Player extends Application {
             logger.trace(newV ? "Window maximized" : "Window restored");
         });
 
-        // Create and display a playlist containing all songs from each directory.
+        // Display the library as it was after the last refresh, then create and
+        // display a playlist containing all songs from each directory.
+        showLibrarySnapshot();
         refresh();
     }
 
+    /**
+     * Writes pending changes to the options and stops watching the music
+     * directories when the application exits. Pending tag writes are given
+     * time to finish. A refresh in progress is cancelled, and given a moment
+     * to save its progress.
+     *
+     * @throws InterruptedException if interrupted while waiting for the refresh to stop
+     */
+    @Override
+    public void stop() throws InterruptedException {
+        tagWriteQueue.drain(Defaults.TAG_WRITE_DRAIN_TIMEOUT, TimeUnit.SECONDS);
+        getOptions().flush();
+        stopWatching();
+        cancelRefresh();
+        refreshExecutor.shutdown();
+        refreshExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
     /**
      * Restart the program.
      */
@@ -214,6 +268,9 @@ public class Player extends Application {
 
         // Stop any playing songs
         stopSong();
+        stopWatching();
+        cancelRefresh();
+        getOptions().flush();
 
         // Set variables to null
         instance = null;
@@ -225,6 +282,10 @@ public class Player extends Application {
         masterPlaylist = null;
         directories = null;
         options = null;
+        songCache = null;
+        librarySnapshot = null;
+        libraryIndex = null;
+        playlistIndex = null;
 
         // Re-initialize
         try {
@@ -234,26 +295,105 @@ public class Player extends Application {
         }
     }
 
+    /**
+     * Displays the master playlist saved in the library snapshot, if any. In
+     * stale-while-revalidate mode, the saved playlists are displayed as well,
+     * resolved against the snapshot, and the first refresh brings them up to
+     * date in place. Must be called on the GUI thread, before the first
+     * refresh.
+     *
+     * @throws IOException if a saved playlist cannot be read
+     */
+    private void showLibrarySnapshot() throws IOException {
+        long begin = System.nanoTime();
+        List<Song> songs = librarySnapshot.read();
+        if (songs.isEmpty()) {
+            return;
+        }
+        Playlist master = new Playlist("All Music");
+        master.addAll(songs);
+        showMasterPlaylist(master);
+
+        if (getOptions().isStaleWhileRevalidate()) {
+            master.forEach(libraryIndex::put);
+            for (Entry<String, String> nameToM3UString : getOptions().getPlaylists().entrySet()) {
+                getController().getPlaylistMenu().loadPlaylist(createPlaylist(nameToM3UString,
+                        file -> libraryIndex.resolve(file, SongFactory::create)));
+            }
+            getController().getVolumeSlider().setValue(getOptions().getVolume());
+            getController().focus(getController().getPlaylistTable(), 0);
+            setInitialized(true);
+        }
+        logger.info("Displayed library snapshot. Time elapsed: {}ms",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+    }
+
     /**
      * First, adds all music files that can be found in available directories to
-     * the master playlist. Then loads all available playlists.
+     * the master playlist. Then loads all available playlists. A refresh which
+     * is still in progress is cancelled.
+     * <p>
+     * If the master playlist already has songs, such as those read from the
+     * library snapshot, it stays on display until the new one is complete,
+     * and is then either replaced or, in stale-while-revalidate mode, brought
+     * up to date in place. Otherwise, the new master playlist is displayed
+     * straight away and fills up as songs are parsed.
      */
     public void refresh() {
-        Task<?> refresher = new Refresher();
-        refresher.progressProperty().addListener((obs, oldVal, newVal) -> getController().getStatus()
-                .setText(refresher.getMessage() + new DecimalFormat("#0%").format(newVal)));
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        Future<?> future = executor.submit(refresher);
-        executor.shutdown();
-        new Thread(() -> {
-            try {
-                future.get(Defaults.TIMEOUT, TimeUnit.SECONDS);
-            } catch (ExecutionException | InterruptedException | TimeoutException e) {
-                logger.error(e.getMessage(), e);
-                Platform.runLater(() -> getController().getStatus()
-                        .setText("An error has occurred: " + e.getClass().getSimpleName()));
+        stopWatching();
+        cancelRefresh();
+        RefreshMode mode;
+        if (getMasterPlaylist() == null || getMasterPlaylist().isEmpty()) {
+            mode = RefreshMode.PROGRESSIVE;
+        } else if (getOptions().isStaleWhileRevalidate()) {
+            mode = RefreshMode.RECONCILE;
+        } else {
+            mode = RefreshMode.REPLACE;
+        }
+        Refresher task = new Refresher(mode);
+        refresher = task;
+        task.progressProperty().addListener((obs, oldVal, newVal) -> {
+            if (task == refresher) {
+                getController().getStatus().setText(task.getMessage() + new DecimalFormat("#0%").format(newVal));
             }
-        }).start();
+        });
+        task.setOnFailed(event -> {
+            logger.error(task.getException().getMessage(), task.getException());
+            getController().getStatus().setText("An error has occurred: "
+                    + task.getException().getClass().getSimpleName());
+        });
+        refreshExecutor.submit(task);
+    }
+
+    /**
+     * Cancels the refresh in progress, if any. Its scan is interrupted, and
+     * the songs parsed so far are saved to the song cache.
+     */
+    private void cancelRefresh() {
+        if (refresher != null) {
+            refresher.cancel(true);
+            refresher = null;
+        }
+    }
+
+    /**
+     * How a refresh presents the new master playlist.
+     */
+    private enum RefreshMode {
+        /**
+         * Display the new master playlist straight away, and fill it as songs are parsed.
+         */
+        PROGRESSIVE,
+
+        /**
+         * Keep the current master playlist on display until the new one is complete, then replace it.
+         */
+        REPLACE,
+
+        /**
+         * Keep the current master playlist and playlists on display, then apply the differences to them.
+         */
+        RECONCILE
     }
 
     /**
@@ -261,6 +401,24 @@ public class Player extends Application {
      * <code>refresh()</code> method.
      */
     private class Refresher extends Task<Void> {
+        // Captured, since a restart replaces them while a cancelled refresh may still be saving its progress
+        private final SongCache cache = songCache;
+        private final LibrarySnapshot snapshot = librarySnapshot;
+
+        // Filled by the scan, while the current index keeps answering searches until it is replaced
+        private final LibraryIndex index = new LibraryIndex();
+
+        private final RefreshMode mode;
+        private final Playlist master = new Playlist("All Music");
+        private final List<Song> library = new ArrayList<>();
+
+        /**
+         * @param mode How to present the new master playlist
+         */
+        private Refresher(RefreshMode mode) {
+            this.mode = mode;
+        }
+
         /**
          * The main task associated with the <code>refresh()</code> method. This
          * is an expensive call, so it is <b>not</b> recommended to run it on
@@ -270,119 +428,188 @@ public class Player extends Application {
         protected Void call() throws Exception {
             logger.info("Refresh call started.");
             long begin = System.nanoTime();
+            targetIndex = index;
+            cache.load();
+            cache.beginScan();
+            cache.resetStatistics();
 
-            refreshMasterPlaylist();
+            try {
+                refreshMasterPlaylist();
+            } finally {
+                if (isCancelled()) {
+                    cache.checkpoint();
+                }
+            }
+            if (isCancelled()) {
+                logger.info("Refresh cancelled. Songs parsed so far have been saved to the song cache.");
+                return null;
+            }
             List<Playlist> playlists = getPlaylists();
+            cache.save();
+            snapshot.write(library);
 
             // Refresh the view.
             Platform.runLater(() -> {
+                if (isCancelled()) {
+                    return;
+                }
+                if (mode != RefreshMode.PROGRESSIVE) {
+                    setLibraryIndex(index);
+                }
+                if (mode == RefreshMode.REPLACE) {
+                    showMasterPlaylist(master);
+                } else if (mode == RefreshMode.RECONCILE) {
+                    reconcile(library);
+                }
                 if (!isInitialized()) {
-                    getController().getPlaylistMenu().loadPlaylist(getMasterPlaylist());
                     playlists.forEach(getController().getPlaylistMenu()::loadPlaylist);
                     getController().getVolumeSlider().setValue(getOptions().getVolume());
-                } else {
-                    getController().getPlaylistList().set(0, getMasterPlaylist());
                 }
                 getController().refreshTables();
-                getController().focus(getController().getPlaylistTable(), 0);
+                if (mode != RefreshMode.RECONCILE) {
+                    getController().focus(getController().getPlaylistTable(), 0);
+                }
+                getController().getSongTable().sort();
+                getController().getPlaybackMenu().buildShuffledRowList();
                 getController().getStatus().setText("");
                 setInitialized(true);
+                startWatching();
             });
 
             String elapsedSeconds = new DecimalFormat("0.000").format((System.nanoTime() - begin) / 1000000000.0);
             logger.info("Refresh call complete. Time elapsed: {}s", elapsedSeconds);
+            logger.info("Song cache: {} hits, {} misses", cache.getHits(), cache.getMisses());
+            logger.info("Scan statistics: {}", scanStatistics.summary());
             return null;
         }
 
         /**
-         * Clears the master playlist, then constructs a new one out of all
-         * supported audio files found in the set of directories.
+         * Fills a new master playlist with all supported audio files found in
+         * the set of directories. Songs are added in the order that they finish
+         * parsing. If the refresh is {@link RefreshMode#PROGRESSIVE}, the new master playlist
+         * and library index replace the displayed ones straight away, and songs
+         * are handed to the GUI thread in batches so that the song table fills
+         * up while the refresh is still running. Otherwise, the new index only
+         * replaces the current one once the refresh is complete.
          *
          * @throws InterruptedException if the current thread was interrupted while waiting
-         * @throws ExecutionException   if the computation threw an exception
          */
-        private void refreshMasterPlaylist() throws InterruptedException, ExecutionException {
-            setMasterPlaylist(new Playlist("All Music"));
+        private void refreshMasterPlaylist() throws InterruptedException {
+            if (mode == RefreshMode.PROGRESSIVE) {
+                Platform.runLater(() -> {
+                    setLibraryIndex(index);
+                    showMasterPlaylist(master);
+                });
+            }
             if (directories != null) {
                 logger.info("Found directories: " + directories);
                 logger.info("Populating the master playlist...");
 
-                Collection<Future<Song>> sFutures = getFutures(directories);
-                long workDone = 0;
-                long max = sFutures.size();
-                updateMessage("Updating songs... ");
-                for (Future<Song> song : sFutures) {
-                    getMasterPlaylist().add(song.get());
-                    updateProgress(++workDone, max);
+                scanStatistics.reset();
+                try (ScanPipeline pipeline = newScanPipeline(directories, cache)) {
+                    pipeline.start();
+                    long workDone = 0;
+                    long lastPublish = System.nanoTime();
+                    long lastCheckpoint = System.nanoTime();
+                    long lastSummary = System.nanoTime();
+                    List<Song> batch = new ArrayList<>();
+                    updateMessage("Updating songs... ");
+                    while (!pipeline.isDone() && !isCancelled()) {
+                        Song song = pipeline.poll(Defaults.PUBLISH_INTERVAL, TimeUnit.MILLISECONDS);
+                        if (song != null) {
+                            index.put(song);
+                            library.add(song);
+                            batch.add(song);
+                            updateProgress(++workDone, pipeline.getFound());
+                        }
+                        if (!batch.isEmpty() && System.nanoTime() - lastPublish
+                                >= TimeUnit.MILLISECONDS.toNanos(Defaults.PUBLISH_INTERVAL)) {
+                            publish(batch);
+                            batch = new ArrayList<>();
+                            lastPublish = System.nanoTime();
+                        }
+                        if (System.nanoTime() - lastCheckpoint
+                                >= TimeUnit.SECONDS.toNanos(Defaults.CHECKPOINT_INTERVAL)) {
+                            cache.checkpoint();
+                            lastCheckpoint = System.nanoTime();
+                        }
+                        if (System.nanoTime() - lastSummary
+                                >= TimeUnit.SECONDS.toNanos(Defaults.STATISTICS_LOG_INTERVAL)) {
+                            logger.info("Scan statistics: {}", scanStatistics.summary());
+                            lastSummary = System.nanoTime();
+                        }
+                    }
+                    publish(batch);
                 }
             }
         }
 
         /**
-         * Constructs playlists out of all m3u files found in the playlists
-         * folder. The constructed playlists are then wrapped into a collection.
+         * Appends a batch of songs to the new master playlist. If it is on
+         * display, this is done on the GUI thread. If the displayed master
+         * playlist is to be reconciled instead, it is not needed at all.
+         *
+         * @param batch The songs to append
+         */
+        private void publish(List<Song> batch) {
+            if (batch.isEmpty() || isCancelled()) {
+                return;
+            }
+            if (mode == RefreshMode.PROGRESSIVE) {
+                Platform.runLater(() -> appendSongs(master, batch));
+            } else if (mode == RefreshMode.REPLACE) {
+                master.addAll(master.size(), batch);
+            }
+        }
+
+        /**
+         * Constructs playlists out of the saved M3U strings. Each entry is
+         * looked up in the library index, so only files outside of the music
+         * directories need to be parsed.
          *
          * @return The collection of constructed playlists.
-         * @throws InterruptedException if the current thread was interrupted while waiting
-         * @throws ExecutionException   if the computation threw an exception
+         * @throws IOException if an M3U string cannot be read
          */
-        private List<Playlist> getPlaylists() throws InterruptedException, ExecutionException {
+        private List<Playlist> getPlaylists() throws IOException {
             List<Playlist> playlists = new ArrayList<>();
             if (!isInitialized()) {
-                List<Future<Playlist>> pFutures = new ArrayList<>();
-                ExecutorService outerExec = Executors.newWorkStealingPool();
-
-                // Iterate through each playlist.
                 LinkedHashMap<String, String> lhm = getOptions().getPlaylists();
+                long workDone = 0;
                 for (Entry<String, String> nameToM3UString : lhm.entrySet()) {
-                    pFutures.add(outerExec.submit(() -> createPlaylist(nameToM3UString)));
-                }
-                outerExec.shutdown();
-                for (Future<Playlist> playlist : pFutures) {
-                    playlists.add(playlist.get());
+                    updateMessage("Updating playlists... ");
+                    playlists.add(createPlaylist(nameToM3UString, file -> index.resolve(file, cache::get)));
+                    updateProgress(++workDone, lhm.size());
                 }
             }
             return playlists;
         }
 
-        /**
-         * Creates a playlist out of an m3u file.
-         *
-         * @param nameToM3UString An {@link Entry} which maps playlist name to the contents of its respective M3U file.
-         * @throws IOException          If an I/O error occurs
-         * @throws InterruptedException if the current thread was interrupted while waiting
-         * @throws ExecutionException   if the computation threw an exception
-         */
-        private Playlist createPlaylist(Entry<String, String> nameToM3UString) throws IOException, InterruptedException, ExecutionException {
-            String name = nameToM3UString.getKey();
-            String m3uString = nameToM3UString.getValue();
-
-            Playlist playlist = new Playlist(name);
-            Queue<Future<Song>> sFutures = new ArrayDeque<>();
-
-            // Get each song, line by line.
-            try (BufferedReader reader = new BufferedReader(new StringReader(m3uString))) {
-                ExecutorService innerExec = Executors.newWorkStealingPool();
-                for (String nextLine; (nextLine = reader.readLine()) != null; ) {
-                    final String s = nextLine;
-                    sFutures.add(innerExec.submit(() -> SongFactory.create(new File(s))));
-                }
-                innerExec.shutdown();
-            }
+    }
 
-            // Add each song to the playlist.
-            long workDone = 0;
-            long max = sFutures.size();
-            for (Future<Song> song : sFutures) {
-                updateMessage("Updating " + playlist.getName() + "...");
-                Song s = song.get();
-                playlist.add(s);
-                logger.debug("Added song: {} to playlist: {}", s, playlist.getName());
-                updateProgress(++workDone, max);
+    /**
+     * Creates a playlist out of an m3u file.
+     *
+     * @param nameToM3UString An {@link Entry} which maps playlist name to the contents of its respective M3U file.
+     * @param resolver        Looks up the song for each entry, usually in the library index
+     * @return The constructed playlist.
+     * @throws IOException If an I/O error occurs
+     */
+    private static Playlist createPlaylist(Entry<String, String> nameToM3UString, Function<File, Song> resolver)
+            throws IOException {
+        Playlist playlist = new Playlist(nameToM3UString.getKey());
+
+        // Get each song, line by line.
+        try (BufferedReader reader = new BufferedReader(new StringReader(nameToM3UString.getValue()))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                try {
+                    playlist.add(resolver.apply(new File(line)));
+                } catch (IllegalArgumentException e) {
+                    logger.error("Could not add file: " + line, e);
+                }
             }
-            return playlist;
         }
-
+        logger.debug("Loaded {} songs into playlist: {}", playlist.size(), playlist.getName());
+        return playlist;
     }
 
     // ------------------- Media Player Controls ------------------- //
@@ -494,7 +721,12 @@ public class Player extends Application {
             alert.showAndWait();
             logger.error(e.getMessage(), e);
         }
-        refresh();
+        if (libraryWatcher != null) {
+            scanDirectory(directory);
+            libraryWatcher.watch(directory);
+        } else {
+            refresh();
+        }
     }
 
     /**
@@ -521,6 +753,13 @@ public class Player extends Application {
         if (result.isPresent()) {
             directories.remove(result.get());
             writeDirectories();
+            if (libraryWatcher != null) {
+                libraryWatcher.unwatch(result.get());
+                libraryIndex.remove(result.get());
+                removeSongs(result.get());
+            } else {
+                refresh();
+            }
             getController().getStatus().setText("Directory removed.");
             logger.info("Directory removed. Remaining directories:" + directories);
             return true;
@@ -568,35 +807,321 @@ public class Player extends Application {
     }
 
     /**
-     * Traverses each directory, obtaining all supported audio files. Each audio
-     * file found is wrapped in a <code>Future&lt;Song&gt;</code>, which is then
-     * added to a collection.
+     * Creates a {@link ScanPipeline} which parses songs through the song
+     * cache, using as many threads as configured for the storage type.
+     *
+     * @param directories The directories to scan
+     * @param cache       The song cache to parse through
+     * @return The pipeline, which has not been started yet
+     */
+    private ScanPipeline newScanPipeline(Collection<File> directories, SongCache cache) {
+        StorageType storageType = getOptions().getStorageType();
+        int threads = getOptions().getParserThreads(storageType);
+        logger.info("Scanning with {} parser threads ({})", threads, storageType);
+        return new ScanPipeline(directories, cache::get, threads, Defaults.SCAN_QUEUE_CAPACITY, scanStatistics);
+    }
+
+    // ------------------- Library Watching ------------------- //
+
+    /**
+     * Starts watching each directory, so that changes are applied to the master playlist without a refresh.
+     */
+    private void startWatching() {
+        stopWatching();
+        libraryWatcher = new LibraryWatcher(new LibraryListener());
+        directories.stream().filter(File::isDirectory).forEach(libraryWatcher::watch);
+    }
+
+    /**
+     * Stops watching the directories.
+     */
+    private void stopWatching() {
+        if (libraryWatcher != null) {
+            libraryWatcher.close();
+            libraryWatcher = null;
+        }
+    }
+
+    /**
+     * Applies the changes detected by the {@link LibraryWatcher}. Files are parsed on the refresh executor, in turn
+     * with refreshes and directory scans, so each change is applied to the index of the latest refresh. The results
+     * are then handed to the GUI thread.
+     */
+    private class LibraryListener implements LibraryWatcher.Listener {
+        // Captured, since a restart replaces it
+        private final SongCache cache = songCache;
+
+        @Override
+        public void update(File file) {
+            refreshExecutor.execute(() -> {
+                if (tagWriteQueue.isOwnChange(file)) {
+                    logger.debug("Ignoring tags written by TuneJar: {}", file);
+                    return;
+                }
+                Song song = cache.get(file);
+                targetIndex.put(song);
+                Platform.runLater(() -> putSongs(Collections.singletonList(song)));
+            });
+        }
+
+        @Override
+        public void remove(File file) {
+            refreshExecutor.execute(() -> {
+                targetIndex.remove(file);
+                Platform.runLater(() -> removeSongs(file));
+            });
+        }
+
+        @Override
+        public void overflow(File directory) {
+            Platform.runLater(Player.this::refresh);
+        }
+    }
+
+    /**
+     * Parses the songs of a single directory in the background, then adds them to the master playlist. The scan runs
+     * on the same executor as refreshes, so it never overlaps with one. Once it succeeds, the song cache and the
+     * library snapshot are saved, as after a refresh.
      *
-     * @return A collection of type <code>Future&lt;Song&gt;</code>
-     */
-    private Collection<Future<Song>> getFutures(Collection<File> directories) {
-        // Initialization
-        Collection<Future<Song>> futures = HashMultiset.create();
-        ExecutorService executor = Executors.newWorkStealingPool();
-
-        // Loop through directories
-        for (File directory : directories) {
-            if (directory == null || !directory.isDirectory()) {
-                logger.error("Failed to access directory: " + directory + ", skipping...");
-                continue;
+     * @param directory The directory to scan
+     */
+    private void scanDirectory(File directory) {
+        SongCache cache = songCache;
+        LibrarySnapshot snapshot = librarySnapshot;
+        Task<List<Song>> scanner = new Task<List<Song>>() {
+            @Override
+            protected List<Song> call() throws Exception {
+                List<Song> songs = new ArrayList<>();
+                try (ScanPipeline pipeline = newScanPipeline(Collections.singleton(directory), cache)) {
+                    pipeline.start();
+                    while (!pipeline.isDone()) {
+                        Song song = pipeline.poll(Defaults.PUBLISH_INTERVAL, TimeUnit.MILLISECONDS);
+                        if (song != null) {
+                            targetIndex.put(song);
+                            songs.add(song);
+                        }
+                    }
+                }
+                cache.save();
+                snapshot.write(targetIndex.getSongs());
+                return songs;
             }
+        };
+        scanner.setOnSucceeded(event -> {
+            putSongs(scanner.getValue());
+            getController().getStatus().setText("Added " + scanner.getValue().size() + " songs.");
+            logger.info("Added {} songs from directory: {}", scanner.getValue().size(), directory);
+        });
+        scanner.setOnFailed(event -> {
+            logger.error("Failed to scan directory: " + directory, scanner.getException());
+            getController().getStatus().setText("Failed to scan the directory.");
+        });
+        refreshExecutor.submit(scanner);
+    }
+
+    /**
+     * Makes a new, possibly still empty, master playlist the first entry of the
+     * playlist table and displays it. Must be called on the GUI thread.
+     *
+     * @param master The new master playlist
+     */
+    private void showMasterPlaylist(Playlist master) {
+        Playlist previous = getMasterPlaylist();
+        setMasterPlaylist(master);
+        if (previous == null) {
+            getController().getPlaylistMenu().loadPlaylist(master);
+        } else {
+            getController().getPlaylistList().set(0, master);
+            getController().focus(getController().getPlaylistTable(), 0);
+        }
+    }
 
-            // Depth first search through each directory for supported files
-            try (Stream<Path> str = Files.walk(directory.toPath())) {
-                str.filter(path -> FilenameUtils.getExtension(path.toString()).matches("mp3|mp4|m4a|wav"))
-                        .forEach(path -> futures.add(executor.submit(() -> SongFactory.create(path.toFile()))));
-            } catch (IOException e) {
-                logger.error("Failed to access directory: " + directory, e);
+    /**
+     * Appends songs to a playlist. If the playlist is displayed, the songs are
+     * appended to the song table as well. The songs are not copied, so that
+     * the master playlist holds the same songs as the library index. Must be
+     * called on the GUI thread.
+     *
+     * @param playlist The playlist
+     * @param songs    The songs to append
+     */
+    private void appendSongs(Playlist playlist, List<Song> songs) {
+        long begin = System.nanoTime();
+        int from = playlist.size();
+        playlist.addAll(from, songs);
+        if (playlist == getController().getPlaylistTable().getSelectionModel().getSelectedItem()) {
+            getController().getSongList().addAll(playlist.subList(from, playlist.size()));
+        }
+        scanStatistics.batchPublished(System.nanoTime() - begin);
+    }
+
+    /**
+     * Adds songs to the master playlist, replacing any song with the same file. The songs are not copied, so that the
+     * master playlist holds the same songs as the library index. If the master playlist is displayed, the song table
+     * is updated as well. Copies of the songs in other playlists adopt their tags. Must be called on the GUI thread.
+     *
+     * @param songs The songs to add
+     */
+    private void putSongs(List<Song> songs) {
+        Playlist master = getMasterPlaylist();
+        Map<String, Song> updated = new HashMap<>();
+        songs.forEach(song -> updated.put(song.getAbsoluteFilename(), song));
+        for (Playlist playlist : getController().getPlaylistList()) {
+            if (playlist != master) {
+                for (Song song : playlist) {
+                    Song current = updated.get(song.getAbsoluteFilename());
+                    if (current != null) {
+                        song.updateFrom(current);
+                    }
+                }
             }
         }
-        executor.shutdown();
 
-        return futures;
+        boolean displayed = master == getController().getPlaylistTable().getSelectionModel().getSelectedItem();
+        ObservableList<Song> songList = getController().getSongList();
+
+        Map<String, Integer> masterIndex = indexByFilename(master);
+        Map<String, Integer> songListIndex = displayed ? indexByFilename(songList) : Collections.emptyMap();
+        for (Song song : songs) {
+            Integer i = masterIndex.get(song.getAbsoluteFilename());
+            if (i != null) {
+                master.set(i, song);
+            } else {
+                masterIndex.put(song.getAbsoluteFilename(), master.size());
+                master.add(master.size(), song);
+            }
+
+            if (displayed) {
+                Song added = master.get(masterIndex.get(song.getAbsoluteFilename()));
+                Integer j = songListIndex.get(song.getAbsoluteFilename());
+                if (j != null) {
+                    songList.set(j, added);
+                } else {
+                    songListIndex.put(song.getAbsoluteFilename(), songList.size());
+                    songList.add(added);
+                }
+            }
+        }
+        if (displayed) {
+            getController().getPlaybackMenu().buildShuffledRowList();
+        }
+    }
+
+    /**
+     * Removes all songs in a file or directory from the master playlist and, if it is displayed, the song table.
+     * Must be called on the GUI thread.
+     *
+     * @param file The deleted file or directory
+     */
+    private void removeSongs(File file) {
+        String path = file.getAbsolutePath();
+        String prefix = path + File.separator;
+        Predicate<Song> affected = song -> song.getAbsoluteFilename().equals(path)
+                || song.getAbsoluteFilename().startsWith(prefix);
+
+        Playlist master = getMasterPlaylist();
+        if (master == getController().getPlaylistTable().getSelectionModel().getSelectedItem()) {
+            if (getController().getSongList().removeIf(affected)) {
+                getController().getPlaybackMenu().buildShuffledRowList();
+            }
+        }
+        if (master.removeIf(affected)) {
+            logger.info("Removed songs in: {}", file);
+        }
+    }
+
+    /**
+     * Brings the displayed master playlist and playlists up to date with a
+     * completed scan. Retagged songs are updated in place, while songs which
+     * were added or removed are added to or removed from the master playlist,
+     * so the selection and scroll position of each table are kept. The songs
+     * of the master playlist then replace the scanned ones in the library
+     * index. Must be called on the GUI thread.
+     *
+     * @param library The songs found by the scan
+     */
+    private void reconcile(List<Song> library) {
+        Map<String, Song> scanned = new HashMap<>();
+        library.forEach(song -> scanned.put(song.getAbsoluteFilename(), song));
+
+        Playlist master = getMasterPlaylist();
+        Set<String> found = new HashSet<>();
+        int retagged = 0;
+        for (Playlist playlist : getController().getPlaylistList()) {
+            for (Song song : playlist) {
+                Song current = scanned.get(song.getAbsoluteFilename());
+                if (current == null) {
+                    continue;
+                }
+                boolean updated = song.updateFrom(current);
+                if (playlist == master) {
+                    getLibraryIndex().adopt(song);
+                    found.add(song.getAbsoluteFilename());
+                    retagged += updated ? 1 : 0;
+                }
+            }
+        }
+
+        Predicate<Song> removed = song -> !scanned.containsKey(song.getAbsoluteFilename());
+        if (master == getController().getPlaylistTable().getSelectionModel().getSelectedItem()) {
+            getController().getSongList().removeIf(removed);
+        }
+        int before = master.size();
+        master.removeIf(removed);
+        List<Song> added = library.stream()
+                .filter(song -> !found.contains(song.getAbsoluteFilename()))
+                .collect(Collectors.toList());
+        putSongs(added);
+        logger.info("Reconciled the master playlist: {} added, {} removed, {} retagged",
+                added.size(), before - master.size(), retagged);
+    }
+
+    /**
+     * Maps the filename of each song in a list to its index.
+     *
+     * @param songs The songs
+     * @return A map of absolute filenames to list indices
+     */
+    private static Map<String, Integer> indexByFilename(List<Song> songs) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < songs.size(); i++) {
+            index.put(songs.get(i).getAbsoluteFilename(), i);
+        }
+        return index;
+    }
+
+    // ------------------- Tag Writing ------------------- //
+
+    /**
+     * Shows the progress of the tag write queue in the status bar.
+     */
+    private void showTagWriteStatus() {
+        if (getController() == null) {
+            return;
+        }
+        int pending = tagWriteQueue.pendingProperty().get();
+        int failed = tagWriteQueue.failedProperty().get();
+        String failures = failed > 0 ? " " + failed + " failed so far." : "";
+        if (pending > 0) {
+            getController().getStatus().setText("Saving " + pending + " edits..." + failures);
+        } else {
+            getController().getStatus().setText("Edits saved." + failures);
+        }
+    }
+
+    /**
+     * Reports an edit which could not be written, and has been rolled back.
+     *
+     * @param song The song
+     * @param e    The cause
+     */
+    private void tagWriteFailed(Song song, TuneJarException e) {
+        if (getController() == null) {
+            return;
+        }
+        libraryIndex.reindex(song);
+        getController().refreshTables();
+        getController().getStatus().setText("Edit unsuccessful: " + song);
     }
 
     // ------------------- Exception Handling ------------------- //
@@ -684,6 +1209,38 @@ public class Player extends Application {
         return masterPlaylist;
     }
 
+    /**
+     * @return Queue which writes edited tags to audio files.
+     */
+    public TagWriteQueue getTagWriteQueue() {
+        return tagWriteQueue;
+    }
+
+    /**
+     * @return Index of every song in the music directories, by absolute path.
+     */
+    public LibraryIndex getLibraryIndex() {
+        return libraryIndex;
+    }
+
+    /**
+     * Replaces the library index, along with the playlist index which answers its queries. Must be called on the GUI
+     * thread.
+     *
+     * @param index The new library index
+     */
+    private void setLibraryIndex(LibraryIndex index) {
+        libraryIndex = index;
+        playlistIndex = new PlaylistIndex(index);
+    }
+
+    /**
+     * @return Index of the playlists containing each song. Must only be used from the GUI thread.
+     */
+    public PlaylistIndex getPlaylistIndex() {
+        return playlistIndex;
+    }
+
     /**
      * @param masterPlaylist The {@link Playlist} to set <code>masterPlaylist</code> to
      */
@@ -1,7 +1,9 @@
 package com.sudicode.tunejar.player;
 
 import com.sudicode.tunejar.config.Defaults;
+import com.sudicode.tunejar.library.BrowseIndex;
 import com.sudicode.tunejar.menu.AdvancedMenu;
+import com.sudicode.tunejar.menu.BrowseMenu;
 import com.sudicode.tunejar.menu.FileMenu;
 import com.sudicode.tunejar.menu.PlaybackMenu;
 import com.sudicode.tunejar.menu.PlaylistMenu;
@@ -10,36 +12,50 @@ import com.sudicode.tunejar.menu.ThemeMenu;
 import com.sudicode.tunejar.menu.VolumeMenu;
 import com.sudicode.tunejar.song.Playlist;
 import com.sudicode.tunejar.song.Song;
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.ObjectBinding;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.SelectionMode;
 import javafx.scene.control.Slider;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
 import javafx.scene.control.ToolBar;
+import javafx.scene.control.TreeView;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseButton;
+import org.jaudiotagger.tag.FieldKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.function.Predicate;
 
 public class PlayerController implements Initializable {
 
@@ -49,6 +65,16 @@ public class PlayerController implements Initializable {
     private ObservableList<Song> songList;
     private ObservableList<Playlist> playlistList;
 
+    /**
+     * Songs shown in the song table, or <code>null</code> to show every song in the song list.
+     */
+    private final ObjectProperty<Predicate<? super Song>> songFilter = new SimpleObjectProperty<>();
+
+    /**
+     * Order of the songs in the song table, or <code>null</code> to show them in the order of the song list.
+     */
+    private ObjectBinding<Comparator<Song>> songComparator;
+
     // Menus
     private FileMenu fileMenu;
     private PlaybackMenu playbackMenu;
@@ -57,6 +83,7 @@ public class PlayerController implements Initializable {
     private ThemeMenu themeMenu;
     private VolumeMenu volumeMenu;
     private AdvancedMenu advancedMenu;
+    private BrowseMenu browseMenu;
 
     // FXML Injections
     @FXML
@@ -72,6 +99,16 @@ public class PlayerController implements Initializable {
     @FXML
     private TableColumn<Playlist, String> name;
     @FXML
+    private TabPane sidebar;
+    @FXML
+    private Tab artistTab;
+    @FXML
+    private Tab albumTab;
+    @FXML
+    private TreeView<BrowseIndex.Group> artistTree;
+    @FXML
+    private ListView<BrowseIndex.Group> albumList;
+    @FXML
     private Menu addToPlaylist = new Menu();
     @FXML
     private MenuItem menuPause = new MenuItem();
@@ -105,6 +142,10 @@ public class PlayerController implements Initializable {
     private CheckMenuItem menuShuffle = new CheckMenuItem();
     @FXML
     private MenuBar topMenuBar = new MenuBar();
+    @FXML
+    private Menu storageMenu = new Menu();
+    @FXML
+    private TextField searchField = new TextField();
 
     // --------------- Initialization --------------- //
 
@@ -126,48 +167,42 @@ public class PlayerController implements Initializable {
         themeMenu = new ThemeMenu(this);
         volumeMenu = new VolumeMenu(this);
         advancedMenu = new AdvancedMenu(this);
+        browseMenu = new BrowseMenu(this);
 
-        // Initialize the song table.
+        // Initialize the song table. Songs are sorted by the keys of their tracks rather than by the displayed
+        // strings, so the table's sort policy only has to accept the new sort order.
+        songComparator = Bindings.createObjectBinding(this::createSongComparator,
+                getSongTable().comparatorProperty());
+        getSongTable().setSortPolicy(table -> true);
         setSongList(FXCollections.observableArrayList());
+        getSongTable().getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
         // Set up the title column.
-        getTitleColumn().setCellValueFactory(new PropertyValueFactory<>("Title"));
+        getTitleColumn().setCellValueFactory(cell -> cell.getValue().titleProperty());
         getTitleColumn().setSortType(getPlayer().getOptions().getTitleSortDirection());
         getTitleColumn().sortTypeProperty().addListener((val, oldDir, newDir) -> {
             getPlayer().getOptions().setTitleSortDirection(newDir.toString());
         });
 
         // Set up the artist column.
-        getArtistColumn().setCellValueFactory(new PropertyValueFactory<>("Artist"));
+        getArtistColumn().setCellValueFactory(cell -> cell.getValue().artistProperty());
         getArtistColumn().setSortType(getPlayer().getOptions().getArtistSortDirection());
         getArtistColumn().sortTypeProperty().addListener((val, oldDir, newDir) -> {
             getPlayer().getOptions().setArtistSortDirection(newDir.toString());
         });
 
         // Set up the album column.
-        getAlbumColumn().setCellValueFactory(new PropertyValueFactory<>("Album"));
+        getAlbumColumn().setCellValueFactory(cell -> cell.getValue().albumProperty());
         getAlbumColumn().setSortType(getPlayer().getOptions().getAlbumSortDirection());
         getAlbumColumn().sortTypeProperty().addListener((val, oldDir, newDir) -> {
             getPlayer().getOptions().setAlbumSortDirection(newDir.toString());
         });
 
-        // Add in songs.
-        getSongTable().setItems(getSongList());
-        getSongTable().getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
-
         // When sort order is modified, save changes to the options file.
         getSongTable().getSortOrder().addListener((ListChangeListener<TableColumn<Song, ?>>) c -> {
             List<String> list = new ArrayList<>();
             getSongTable().getSortOrder().forEach(t -> list.add(t.getId()));
             getPlayer().getOptions().setSortOrder(list.toArray(new String[list.size()]));
-
-            // For custom playlists, restore the original order when unsorted
-            if (list.isEmpty()) {
-                Playlist pl = getPlaylistTable().getSelectionModel().getSelectedItem();
-                if (!"All Music".equals(pl.getName())) {
-                    FXCollections.copy(getSongList(), pl);
-                }
-            }
         });
 
         // Load the order of the columns.
@@ -247,7 +282,6 @@ public class PlayerController implements Initializable {
 
             // When a playlist is selected, display it.
             setSongList(FXCollections.observableArrayList(getPlaylistTable().getSelectionModel().getSelectedItem()));
-            getSongTable().setItems(getSongList());
             getPlaybackMenu().buildShuffledRowList();
 
             // The master playlist cannot be renamed, deleted, exported, or altered,
@@ -268,6 +302,9 @@ public class PlayerController implements Initializable {
         initVolume();
         initThemes();
         initSpeedMenu();
+        initStorageMenu();
+        initSearch();
+        initBrowse();
     }
 
     // --------------- File --------------- //
@@ -347,6 +384,42 @@ public class PlayerController implements Initializable {
         songMenu.search();
     }
 
+    public void searchAllPlaylists() {
+        songMenu.searchAllPlaylists();
+    }
+
+    public void initSearch() {
+        songMenu.initSearch();
+    }
+
+    // --------------- Browse --------------- //
+
+    public void initBrowse() {
+        browseMenu.init();
+    }
+
+    /**
+     * Displays songs which are not a playlist, such as the songs of an artist. The playlist table is deselected, so
+     * the actions which alter a playlist are disabled until a playlist is selected again.
+     *
+     * @param songs The songs
+     */
+    public void showSongs(ObservableList<Song> songs) {
+        // Cache sort order
+        List<TableColumn<Song, ?>> sortOrder = getSortOrder();
+
+        getPlaylistTable().getSelectionModel().clearSelection();
+        setSongList(songs);
+        getPlaybackMenu().buildShuffledRowList();
+        menuRemoveSong.setDisable(true);
+        menuRenamePlaylist.setDisable(true);
+        menuDeletePlaylist.setDisable(true);
+        menuExportPlaylist.setDisable(true);
+
+        // Restore sort order
+        setSortOrder(sortOrder);
+    }
+
     // --------------- Playlist --------------- //
 
     public void renamePlaylist() {
@@ -379,6 +452,10 @@ public class PlayerController implements Initializable {
         advancedMenu.reset();
     }
 
+    public void initStorageMenu() {
+        advancedMenu.initStorageMenu();
+    }
+
     // --------------- Utilities --------------- //
 
     /**
@@ -406,10 +483,10 @@ public class PlayerController implements Initializable {
 
         getPlaylistTable().getColumns().get(0).setVisible(false);
         getPlaylistTable().getColumns().get(0).setVisible(true);
-        getPlaylistTable().getSelectionModel().select(0);
 
-        // Re-select what was selected before.
+        // Re-select what was selected before. Nothing is selected while an artist or album is displayed.
         if (!selectedPlaylists.isEmpty()) {
+            getPlaylistTable().getSelectionModel().select(0);
             getPlaylistTable().getSelectionModel().clearSelection();
             for (Playlist p : selectedPlaylists) {
                 getPlaylistTable().getSelectionModel().select(p);
@@ -421,6 +498,7 @@ public class PlayerController implements Initializable {
                 getSongTable().getSelectionModel().select(s);
             }
         }
+        browseMenu.refresh();
     }
 
     // --------------- Getters and Setters --------------- //
@@ -437,6 +515,26 @@ public class PlayerController implements Initializable {
         return playlistTable;
     }
 
+    public TabPane getSidebar() {
+        return sidebar;
+    }
+
+    public Tab getArtistTab() {
+        return artistTab;
+    }
+
+    public Tab getAlbumTab() {
+        return albumTab;
+    }
+
+    public TreeView<BrowseIndex.Group> getArtistTree() {
+        return artistTree;
+    }
+
+    public ListView<BrowseIndex.Group> getAlbumList() {
+        return albumList;
+    }
+
     public TableView<Song> getSongTable() {
         return songTable;
     }
@@ -465,8 +563,56 @@ public class PlayerController implements Initializable {
         return songList;
     }
 
+    /**
+     * Displays a list of songs in the song table. The table shows a filtered and sorted view of the list, so neither
+     * the search field nor the column headers change the order of the list itself.
+     *
+     * @param songList The songs
+     */
     public void setSongList(ObservableList<Song> songList) {
         this.songList = songList;
+        FilteredList<Song> filtered = new FilteredList<>(songList);
+        filtered.predicateProperty().bind(songFilter);
+        SortedList<Song> sorted = new SortedList<>(filtered);
+        sorted.comparatorProperty().bind(songComparator);
+        getSongTable().setItems(sorted);
+
+        // Songs added while searching may match the search.
+        songList.addListener((ListChangeListener<Song>) c -> {
+            if (songMenu != null) {
+                songMenu.scheduleSearch();
+            }
+        });
+    }
+
+    /**
+     * Compares songs by the sort keys of the columns in the table's sort order.
+     *
+     * @return The comparator, or <code>null</code> if the table is not sorted.
+     */
+    private Comparator<Song> createSongComparator() {
+        Comparator<Song> comparator = null;
+        for (TableColumn<Song, ?> column : getSongTable().getSortOrder()) {
+            FieldKey key = column == getTitleColumn() ? FieldKey.TITLE
+                    : column == getArtistColumn() ? FieldKey.ARTIST : FieldKey.ALBUM;
+            Comparator<Song> byColumn = Comparator.comparing(song -> song.getTrack().getSortKey(key));
+            if (column.getSortType() == TableColumn.SortType.DESCENDING) {
+                byColumn = byColumn.reversed();
+            }
+            comparator = comparator == null ? byColumn : comparator.thenComparing(byColumn);
+        }
+        return comparator;
+    }
+
+    /**
+     * @param filter Songs to show in the song table, or <code>null</code> to show every song in the song list
+     */
+    public void setSongFilter(Predicate<? super Song> filter) {
+        songFilter.set(filter);
+    }
+
+    public TextField getSearchField() {
+        return searchField;
     }
 
     public Menu getThemeSelector() {
@@ -542,4 +688,8 @@ public class PlayerController implements Initializable {
         return menuShuffle;
     }
 
+    public Menu getStorageMenu() {
+        return storageMenu;
+    }
+
 }
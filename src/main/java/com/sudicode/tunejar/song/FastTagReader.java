@@ -0,0 +1,444 @@
+package com.sudicode.tunejar.song;
+
+import org.jaudiotagger.tag.FieldKey;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Reads the title, artist and album of MP3 and MP4 files without parsing any audio data. Only the tag itself is read:
+ * the ID3v2 header and frames (or the 128 byte ID3v1 trailer) of an MP3 file, and the <code>moov/udta/meta/ilst</code>
+ * atom of an MP4 file. Anything this reader does not understand is reported as an {@link IOException}, in which case
+ * the caller should fall back to JAudioTagger.
+ */
+final class FastTagReader {
+
+    private static final int ID3V1_LENGTH = 128;
+    private static final String MP4_TITLE = "\u00A9nam";
+    private static final String MP4_ARTIST = "\u00A9ART";
+    private static final String MP4_ALBUM = "\u00A9alb";
+
+    /**
+     * Illegal.
+     */
+    private FastTagReader() {
+    }
+
+    // ------------------- MP3 ------------------- //
+
+    /**
+     * Reads the tag of an MP3 file. If the file has an ID3v2 tag, it is used. Otherwise the ID3v1 tag is used, if
+     * present. Fields which are not present are mapped to empty strings.
+     *
+     * @param file The MP3 file
+     * @return Map of {@link FieldKey#TITLE}, {@link FieldKey#ARTIST} and {@link FieldKey#ALBUM} to their values
+     * @throws IOException if the file cannot be read, or its tag cannot be decoded by this reader
+     */
+    static Map<FieldKey, String> readMp3(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Map<FieldKey, String> fields = newFields();
+            if (channel.size() >= 10 && "ID3".equals(ascii(read(channel, 0, 3), 3))) {
+                readId3v2(channel, fields);
+            } else if (channel.size() >= ID3V1_LENGTH) {
+                ByteBuffer trailer = read(channel, channel.size() - ID3V1_LENGTH, ID3V1_LENGTH);
+                if ("TAG".equals(ascii(trailer, 3))) {
+                    fields.put(FieldKey.TITLE, id3v1String(trailer, 3));
+                    fields.put(FieldKey.ARTIST, id3v1String(trailer, 33));
+                    fields.put(FieldKey.ALBUM, id3v1String(trailer, 63));
+                }
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * Reads the text frames of an ID3v2.2, ID3v2.3 or ID3v2.4 tag located at the start of the file. Frames which are
+     * not needed are skipped without being read.
+     *
+     * @param channel The file
+     * @param fields  Receives the field values
+     * @throws IOException if the tag cannot be decoded
+     */
+    private static void readId3v2(final FileChannel channel, final Map<FieldKey, String> fields) throws IOException {
+        ByteBuffer header = read(channel, 0, 10);
+        int major = header.get(3);
+        int flags = header.get(5);
+        int size = synchsafe(header, 6);
+        if (major < 2 || major > 4) {
+            throw new IOException("Unsupported ID3v2 version: 2." + major);
+        }
+        if (major == 2 && (flags & 0x40) != 0) {
+            throw new IOException("Compressed ID3v2.2 tag");
+        }
+
+        // Before ID3v2.4, unsynchronisation applies to the tag as a whole, so it has to be read at once.
+        Source source;
+        long start;
+        if (major < 4 && (flags & 0x80) != 0) {
+            ByteBuffer tag = resynchronise(read(channel, 10, size));
+            source = (offset, length) -> slice(tag, (int) offset, length);
+            start = 0;
+            size = tag.remaining();
+        } else {
+            source = (offset, length) -> read(channel, offset, length);
+            start = 10;
+        }
+
+        // Skip the extended header
+        long pos = start;
+        if (major > 2 && (flags & 0x40) != 0) {
+            ByteBuffer extended = source.read(pos, 4);
+            pos += major == 3 ? extended.getInt(0) + 4 : synchsafe(extended, 0);
+        }
+
+        long end = start + size;
+        int headerLength = major == 2 ? 6 : 10;
+        int idLength = major == 2 ? 3 : 4;
+        boolean allUnsynchronised = major == 4 && (flags & 0x80) != 0;
+        while (pos + headerLength <= end && hasBlanks(fields)) {
+            ByteBuffer frameHeader = source.read(pos, headerLength);
+            if (frameHeader.get(0) == 0) {
+                break; // Padding
+            }
+            String id = ascii(frameHeader, idLength);
+            if (!id.matches("[A-Z0-9]+")) {
+                throw new IOException("Invalid frame ID: " + id);
+            }
+            int frameSize;
+            int formatFlags = 0;
+            if (major == 2) {
+                frameSize = (frameHeader.get(3) & 0xFF) << 16 | (frameHeader.get(4) & 0xFF) << 8
+                        | frameHeader.get(5) & 0xFF;
+            } else {
+                frameSize = major == 4 ? synchsafe(frameHeader, 4) : frameHeader.getInt(4);
+                formatFlags = frameHeader.get(9);
+            }
+            long bodyStart = pos + headerLength;
+            if (frameSize < 0 || bodyStart + frameSize > end) {
+                throw new IOException("Invalid size of frame: " + id);
+            }
+
+            FieldKey key = fieldKey(id);
+            if (key != null && fields.get(key).isEmpty()) {
+                ByteBuffer body = source.read(bodyStart, frameSize);
+                if (major == 3) {
+                    if ((formatFlags & 0xC0) != 0) {
+                        throw new IOException("Compressed or encrypted frame: " + id);
+                    }
+                    if ((formatFlags & 0x20) != 0) {
+                        body = slice(body, 1, body.remaining() - 1); // Group identifier
+                    }
+                } else if (major == 4) {
+                    if ((formatFlags & 0x0C) != 0) {
+                        throw new IOException("Compressed or encrypted frame: " + id);
+                    }
+                    if ((formatFlags & 0x40) != 0) {
+                        body = slice(body, 1, body.remaining() - 1); // Group identifier
+                    }
+                    if ((formatFlags & 0x02) != 0 || allUnsynchronised) {
+                        body = resynchronise(body);
+                    }
+                    if ((formatFlags & 0x01) != 0) {
+                        body = slice(body, 4, body.remaining() - 4); // Data length indicator
+                    }
+                }
+                fields.put(key, id3v2String(body));
+            }
+            pos = bodyStart + frameSize;
+        }
+    }
+
+    /**
+     * @param id ID of an ID3v2 frame
+     * @return The field stored in the frame, or <code>null</code> if the field is not needed
+     */
+    private static FieldKey fieldKey(final String id) {
+        switch (id) {
+            case "TIT2":
+            case "TT2":
+                return FieldKey.TITLE;
+            case "TPE1":
+            case "TP1":
+                return FieldKey.ARTIST;
+            case "TALB":
+            case "TAL":
+                return FieldKey.ALBUM;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Decodes the body of an ID3v2 text frame. If the frame holds multiple values, the first one is returned.
+     *
+     * @param body The frame body, starting with the text encoding
+     * @return The text
+     * @throws IOException if the text encoding is not supported
+     */
+    private static String id3v2String(final ByteBuffer body) throws IOException {
+        if (!body.hasRemaining()) {
+            return "";
+        }
+        Charset charset;
+        switch (body.get(body.position())) {
+            case 0:
+                charset = StandardCharsets.ISO_8859_1;
+                break;
+            case 1:
+                charset = StandardCharsets.UTF_16;
+                break;
+            case 2:
+                charset = StandardCharsets.UTF_16BE;
+                break;
+            case 3:
+                charset = StandardCharsets.UTF_8;
+                break;
+            default:
+                throw new IOException("Unsupported text encoding: " + body.get(body.position()));
+        }
+        String text = charset.decode(slice(body, 1, body.remaining() - 1)).toString();
+        int terminator = text.indexOf('\0');
+        return terminator >= 0 ? text.substring(0, terminator) : text;
+    }
+
+    /**
+     * Decodes a 30 character field of an ID3v1 tag.
+     *
+     * @param trailer The ID3v1 tag
+     * @param offset  Offset of the field
+     * @return The field value
+     */
+    private static String id3v1String(final ByteBuffer trailer, final int offset) {
+        String text = StandardCharsets.ISO_8859_1.decode(slice(trailer, offset, 30)).toString().trim();
+        int terminator = text.indexOf('\0');
+        return terminator >= 0 ? text.substring(0, terminator) : text;
+    }
+
+    /**
+     * Reverses ID3v2 unsynchronisation, which inserts a zero byte after every 0xFF byte.
+     *
+     * @param data Unsynchronised data
+     * @return The original data
+     */
+    private static ByteBuffer resynchronise(final ByteBuffer data) {
+        ByteBuffer out = ByteBuffer.allocate(data.remaining());
+        boolean afterFF = false;
+        for (int i = data.position(); i < data.limit(); i++) {
+            byte b = data.get(i);
+            if (!(afterFF && b == 0)) {
+                out.put(b);
+            }
+            afterFF = b == (byte) 0xFF;
+        }
+        out.flip();
+        return out;
+    }
+
+    /**
+     * @param buffer A buffer
+     * @param offset Offset of a 4 byte synchsafe integer, in which the most significant bit of each byte is zero
+     * @return The integer
+     * @throws IOException if the integer is not synchsafe
+     */
+    private static int synchsafe(final ByteBuffer buffer, final int offset) throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            byte b = buffer.get(buffer.position() + offset + i);
+            if ((b & 0x80) != 0) {
+                throw new IOException("Invalid synchsafe integer");
+            }
+            value = value << 7 | b;
+        }
+        return value;
+    }
+
+    /**
+     * @param fields Field values
+     * @return <code>true</code> if any of the fields is still empty
+     */
+    private static boolean hasBlanks(final Map<FieldKey, String> fields) {
+        return fields.values().stream().anyMatch(String::isEmpty);
+    }
+
+    // ------------------- MP4 ------------------- //
+
+    /**
+     * Reads the iTunes metadata of an MP4 file by seeking directly to the <code>moov/udta/meta/ilst</code> atom.
+     * Fields which are not present are mapped to empty strings.
+     *
+     * @param file The MP4 file
+     * @return Map of {@link FieldKey#TITLE}, {@link FieldKey#ARTIST} and {@link FieldKey#ALBUM} to their values
+     * @throws IOException if the file cannot be read, or is not a valid MP4 file
+     */
+    static Map<FieldKey, String> readMp4(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Map<FieldKey, String> fields = newFields();
+            long[] moov = findAtom(channel, 0, channel.size(), "moov");
+            if (moov == null) {
+                throw new IOException("No moov atom");
+            }
+            long[] udta = findAtom(channel, moov[0], moov[1], "udta");
+            long[] meta = udta != null ? findAtom(channel, udta[0], udta[1], "meta") : null;
+            if (meta == null) {
+                return fields;
+            }
+
+            // "meta" is usually a full atom, with 4 bytes of version and flags before its children.
+            long metaStart = meta[0];
+            if (meta[1] - metaStart >= 8 && !"hdlr".equals(ascii(read(channel, metaStart + 4, 4), 4))) {
+                metaStart += 4;
+            }
+            long[] ilst = findAtom(channel, metaStart, meta[1], "ilst");
+            if (ilst == null) {
+                return fields;
+            }
+
+            for (long pos = ilst[0]; pos + 8 <= ilst[1]; ) {
+                ByteBuffer header = read(channel, pos, 8);
+                long size = header.getInt(0) & 0xFFFFFFFFL;
+                if (size < 8 || pos + size > ilst[1]) {
+                    throw new IOException("Invalid atom size");
+                }
+                FieldKey key = mp4FieldKey(ascii(slice(header, 4, 4), 4));
+                if (key != null && fields.get(key).isEmpty()) {
+                    long[] data = findAtom(channel, pos + 8, pos + size, "data");
+                    if (data != null && data[1] - data[0] >= 8) {
+                        ByteBuffer value = read(channel, data[0], (int) (data[1] - data[0]));
+                        int type = value.getInt(0) & 0xFFFFFF;
+                        Charset charset = type == 2 ? StandardCharsets.UTF_16BE : StandardCharsets.UTF_8;
+                        fields.put(key, charset.decode(slice(value, 8, value.remaining() - 8)).toString());
+                    }
+                }
+                pos += size;
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * @param type Type of an item in the <code>ilst</code> atom
+     * @return The field stored in the item, or <code>null</code> if the field is not needed
+     */
+    private static FieldKey mp4FieldKey(final String type) {
+        switch (type) {
+            case MP4_TITLE:
+                return FieldKey.TITLE;
+            case MP4_ARTIST:
+                return FieldKey.ARTIST;
+            case MP4_ALBUM:
+                return FieldKey.ALBUM;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Finds the first atom of a given type among the atoms in a range of the file. Only the atom headers are read.
+     *
+     * @param channel The file
+     * @param start   Start of the range
+     * @param end     End of the range
+     * @param type    The atom type
+     * @return Start and end of the atom's content, or <code>null</code> if there is no such atom
+     * @throws IOException if an atom header is invalid
+     */
+    private static long[] findAtom(final FileChannel channel, final long start, final long end, final String type)
+            throws IOException {
+        long pos = start;
+        while (pos + 8 <= end) {
+            ByteBuffer header = read(channel, pos, 8);
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int headerLength = 8;
+            if (size == 1) {
+                size = read(channel, pos + 8, 8).getLong(0);
+                headerLength = 16;
+            } else if (size == 0) {
+                size = end - pos;
+            }
+            if (size < headerLength || pos + size > end) {
+                throw new IOException("Invalid atom size");
+            }
+            if (type.equals(ascii(slice(header, 4, 4), 4))) {
+                return new long[]{pos + headerLength, pos + size};
+            }
+            pos += size;
+        }
+        return null;
+    }
+
+    // ------------------- Utilities ------------------- //
+
+    /**
+     * A range of bytes from which a tag is read.
+     */
+    private interface Source {
+        ByteBuffer read(long offset, int length) throws IOException;
+    }
+
+    /**
+     * @return A new map of the supported fields to empty strings.
+     */
+    private static Map<FieldKey, String> newFields() {
+        Map<FieldKey, String> fields = new EnumMap<>(FieldKey.class);
+        fields.put(FieldKey.TITLE, "");
+        fields.put(FieldKey.ARTIST, "");
+        fields.put(FieldKey.ALBUM, "");
+        return fields;
+    }
+
+    /**
+     * Reads a range of bytes from a file.
+     *
+     * @param channel  The file
+     * @param position Position of the first byte
+     * @param length   Number of bytes
+     * @return The bytes, from position zero to the limit
+     * @throws IOException if the range extends beyond the end of the file
+     */
+    private static ByteBuffer read(final FileChannel channel, final long position, final int length)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @param buffer A buffer
+     * @param offset Offset relative to the buffer's position
+     * @param length Number of bytes
+     * @return A buffer sharing the specified range of bytes
+     * @throws IndexOutOfBoundsException if the range is not within the buffer
+     */
+    private static ByteBuffer slice(final ByteBuffer buffer, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.remaining()) {
+            throw new IndexOutOfBoundsException();
+        }
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(buffer.position() + offset);
+        duplicate.limit(buffer.position() + offset + length);
+        return duplicate.slice();
+    }
+
+    /**
+     * @param buffer A buffer
+     * @param length Number of bytes
+     * @return The first bytes of the buffer, decoded as ISO-8859-1
+     */
+    private static String ascii(final ByteBuffer buffer, final int length) {
+        return StandardCharsets.ISO_8859_1.decode(slice(buffer, 0, length)).toString();
+    }
+
+}
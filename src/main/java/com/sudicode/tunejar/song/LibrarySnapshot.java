@@ -0,0 +1,187 @@
+package com.sudicode.tunejar.song;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of the music library, which lets the song table be populated at startup before any
+ * directory is scanned. The file is read into memory with a single pass over its channel, and closed before it is
+ * decoded, so it can be replaced while the songs are in use. It has the following layout (all integers are big
+ * endian):
+ * <ol>
+ * <li>Header: magic number, format version, number of tracks, number of strings.</li>
+ * <li>String table: the end offset of each string, relative to the start of the string data. Every distinct path,
+ * title, artist and album is stored once, so the artists and albums shared by many tracks cost nothing extra.</li>
+ * <li>Tracks: four string indices per track (path, title, artist, album), so every track has the same width.</li>
+ * <li>String data: the UTF-8 bytes of every string, back to back.</li>
+ * </ol>
+ */
+public final class LibrarySnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibrarySnapshot.class);
+
+    private static final int MAGIC = 0x544a4c53; // "TJLS"
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 16;
+    private static final int TRACK_LENGTH = 16;
+
+    private final File file;
+
+    /**
+     * Construct a new {@link LibrarySnapshot}. Nothing is read until {@link #read()} is called.
+     *
+     * @param file The file used to persist the snapshot
+     */
+    public LibrarySnapshot(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the snapshot. A missing, outdated or corrupt snapshot is not an error; it simply results in an empty
+     * library.
+     *
+     * @return The songs of the library, in the order they were written.
+     */
+    public List<Song> read() {
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            ByteBuffer buffer = readFully();
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.info("Discarding outdated library snapshot: {}", file);
+                return Collections.emptyList();
+            }
+            int trackCount = buffer.getInt();
+            int stringCount = buffer.getInt();
+            int tracksStart = HEADER_LENGTH + stringCount * 4;
+            int dataStart = tracksStart + trackCount * TRACK_LENGTH;
+            if (trackCount < 0 || stringCount < 0 || dataStart > buffer.limit() || dataStart < 0) {
+                throw new IOException("Invalid header");
+            }
+
+            // Decode each string once
+            byte[] data = buffer.array();
+            int dataLength = buffer.limit() - dataStart;
+            String[] strings = new String[stringCount];
+            int start = 0;
+            for (int i = 0; i < stringCount; i++) {
+                int end = buffer.getInt(HEADER_LENGTH + i * 4);
+                if (end < start || end > dataLength) {
+                    throw new IOException("Invalid string offset");
+                }
+                strings[i] = new String(data, dataStart + start, end - start, StandardCharsets.UTF_8);
+                start = end;
+            }
+
+            List<Song> songs = new ArrayList<>(trackCount);
+            for (int i = 0; i < trackCount; i++) {
+                int offset = tracksStart + i * TRACK_LENGTH;
+                Track track = new Track(new File(strings[buffer.getInt(offset)]), strings[buffer.getInt(offset + 4)],
+                        strings[buffer.getInt(offset + 8)], strings[buffer.getInt(offset + 12)]);
+                try {
+                    songs.add(SongFactory.create(track));
+                } catch (IllegalArgumentException e) {
+                    logger.debug("Skipping unsupported file in library snapshot: {}", track.getFile());
+                }
+            }
+            logger.info("Read {} songs from library snapshot: {}", songs.size(), file);
+            return songs;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            logger.error("Failed to read library snapshot: " + file, e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Reads the whole file onto the heap. Unlike a mapping, nothing keeps the file open afterwards, which would
+     * prevent the next {@link #write(List)} from replacing it on Windows.
+     *
+     * @return A buffer holding the contents of the file, positioned at its start.
+     * @throws IOException if the file cannot be read
+     */
+    private ByteBuffer readFully() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large: " + size + " bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the end of the file
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Replaces the snapshot. The file is replaced atomically, so an interrupted write never leaves a truncated
+     * snapshot behind.
+     *
+     * @param songs The songs of the library
+     */
+    public synchronized void write(final List<Song> songs) {
+        // Build the string table
+        Map<String, Integer> indices = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] trackStrings = new int[songs.size() * 4];
+        for (int i = 0; i < songs.size(); i++) {
+            Track track = songs.get(i).getTrack();
+            String[] fields = {track.getAbsolutePath(), track.getTitle(), track.getArtist(), track.getAlbum()};
+            for (int j = 0; j < fields.length; j++) {
+                trackStrings[i * 4 + j] = indices.computeIfAbsent(fields[j], s -> {
+                    strings.add(s.getBytes(StandardCharsets.UTF_8));
+                    return strings.size() - 1;
+                });
+            }
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(songs.size());
+                out.writeInt(strings.size());
+                int end = 0;
+                for (byte[] bytes : strings) {
+                    end += bytes.length;
+                    out.writeInt(end);
+                }
+                for (int index : trackStrings) {
+                    out.writeInt(index);
+                }
+                for (byte[] bytes : strings) {
+                    out.write(bytes);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Wrote {} songs to library snapshot: {}", songs.size(), file);
+        } catch (IOException e) {
+            logger.error("Failed to write library snapshot: " + file, e);
+        }
+    }
+
+}
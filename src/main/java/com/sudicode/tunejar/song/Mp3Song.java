@@ -1,5 +1,6 @@
 package com.sudicode.tunejar.song;
 
+import com.sudicode.tunejar.TuneJarException;
 import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
 import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
@@ -15,6 +16,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * MP3 file.
@@ -23,49 +25,89 @@ public final class Mp3Song extends Song {
 
     private static final Logger logger = LoggerFactory.getLogger(Mp3Song.class);
 
-    private final File audioFile;
-
     /**
      * Constructor.
      *
      * @param mp3File The MP3 (.mp3) file to use.
      */
     Mp3Song(final File mp3File) {
-        audioFile = mp3File;
+        super(parse(mp3File));
+    }
+
+    /**
+     * Constructor. Uses metadata that is already known instead of parsing the file.
+     *
+     * @param track The track to use.
+     */
+    Mp3Song(final Track track) {
+        super(track);
+    }
 
+    /**
+     * Constructor. The copy shares the {@link Track} of the original, so the file is not read again.
+     *
+     * @param mp3Song The {@link Mp3Song} to copy.
+     */
+    Mp3Song(final Mp3Song mp3Song) {
+        super(mp3Song.getTrack());
+    }
+
+    /**
+     * Parses the metadata of a file. A file which cannot be parsed is logged, and results in empty metadata.
+     *
+     * @param mp3File The MP3 (.mp3) file to parse.
+     * @return The parsed metadata
+     */
+    private static Track parse(final File mp3File) {
         try {
-            MP3File f = (MP3File) AudioFileIO.read(audioFile);
+            return read(mp3File);
+        } catch (TuneJarException e) {
+            logger.error("Unable to parse: " + mp3File, e);
+            return new Track(mp3File, "", "", "");
+        }
+    }
+
+    /**
+     * Parses the metadata of a file, using {@link FastTagReader} if possible. A file without a tag is not an error;
+     * its metadata is simply empty.
+     *
+     * @param mp3File The MP3 (.mp3) file to parse.
+     * @return The parsed metadata
+     * @throws TuneJarException if the file cannot be parsed
+     */
+    static Track read(final File mp3File) throws TuneJarException {
+        try {
+            Map<FieldKey, String> fields = FastTagReader.readMp3(mp3File);
+            return new Track(mp3File, fields.get(FieldKey.TITLE), fields.get(FieldKey.ARTIST),
+                    fields.get(FieldKey.ALBUM));
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Falling back to JAudioTagger: " + mp3File, e);
+        }
+
+        // Slower than FastTagReader, but handles every tag it can read
+        try {
+            MP3File f = (MP3File) AudioFileIO.read(mp3File);
 
             // Parse metadata
             if (f.hasID3v2Tag()) {
                 ID3v24Tag tag = f.getID3v2TagAsv24();
-                title.set(tag.getFirst(ID3v24Frames.FRAME_ID_TITLE));
-                artist.set(tag.getFirst(ID3v24Frames.FRAME_ID_ARTIST));
-                album.set(tag.getFirst(ID3v24Frames.FRAME_ID_ALBUM));
+                return new Track(mp3File, tag.getFirst(ID3v24Frames.FRAME_ID_TITLE),
+                        tag.getFirst(ID3v24Frames.FRAME_ID_ARTIST), tag.getFirst(ID3v24Frames.FRAME_ID_ALBUM));
             } else if (f.hasID3v1Tag()) {
                 ID3v1Tag tag = f.getID3v1Tag();
-                title.set(tag.getFirst(FieldKey.TITLE));
-                artist.set(tag.getFirst(FieldKey.ARTIST));
-                album.set(tag.getFirst(FieldKey.ALBUM));
+                return new Track(mp3File, tag.getFirst(FieldKey.TITLE), tag.getFirst(FieldKey.ARTIST),
+                        tag.getFirst(FieldKey.ALBUM));
             }
+            return new Track(mp3File, "", "", "");
         } catch (CannotReadException | IOException | TagException | ReadOnlyFileException
                 | InvalidAudioFrameException e) {
-            logger.error("Unable to parse: " + mp3File, e);
+            throw new TuneJarException(e);
         }
     }
 
-    /**
-     * Constructor.
-     *
-     * @param mp3Song The {@link Mp3Song} to copy.
-     */
-    Mp3Song(final Mp3Song mp3Song) {
-        this(mp3Song.audioFile);
-    }
-
     @Override
     protected File getAudioFile() {
-        return audioFile;
+        return getTrack().getFile();
     }
 
 }
@@ -1,12 +1,15 @@
 package com.sudicode.tunejar.song;
 
+import com.google.common.collect.ImmutableMap;
 import com.sudicode.tunejar.TuneJarException;
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
-import org.jaudiotagger.audio.exceptions.CannotWriteException;
 import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
 import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
+import org.jaudiotagger.tag.FieldDataInvalidException;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.Tag;
 import org.jaudiotagger.tag.TagException;
 import org.jaudiotagger.tag.mp4.Mp4FieldKey;
 import org.jaudiotagger.tag.mp4.Mp4Tag;
@@ -15,6 +18,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * MP4 file.
@@ -23,7 +27,10 @@ public final class Mp4Song extends Song {
 
     private static final Logger logger = LoggerFactory.getLogger(Mp4Song.class);
 
-    private final File audioFile;
+    private static final Map<FieldKey, Mp4FieldKey> MP4_FIELD_KEYS = ImmutableMap.of(
+            FieldKey.TITLE, Mp4FieldKey.TITLE,
+            FieldKey.ARTIST, Mp4FieldKey.ARTIST,
+            FieldKey.ALBUM, Mp4FieldKey.ALBUM);
 
     /**
      * Constructor.
@@ -31,76 +38,90 @@ public final class Mp4Song extends Song {
      * @param mp4File The MP4 (.mp4/.m4a) file to use.
      */
     Mp4Song(final File mp4File) {
-        audioFile = mp4File;
-
-        try {
-            AudioFile f = AudioFileIO.read(audioFile);
+        super(parse(mp4File));
+    }
 
-            // Parse metadata
-            Mp4Tag tag = (Mp4Tag) f.getTag();
-            title.set(tag.getFirst(Mp4FieldKey.TITLE));
-            artist.set(tag.getFirst(Mp4FieldKey.ARTIST));
-            album.set(tag.getFirst(Mp4FieldKey.ALBUM));
-        } catch (IOException | CannotReadException | InvalidAudioFrameException | ReadOnlyFileException
-                | TagException e) {
-            logger.error("Unable to parse: " + mp4File, e);
-        }
+    /**
+     * Constructor. Uses metadata that is already known instead of parsing the file.
+     *
+     * @param track The track to use.
+     */
+    Mp4Song(final Track track) {
+        super(track);
     }
 
     /**
-     * Constructor.
+     * Constructor. The copy shares the {@link Track} of the original, so the file is not read again.
      *
      * @param mp4Song The {@link Mp4Song} to copy.
      */
     Mp4Song(final Mp4Song mp4Song) {
-        this(mp4Song.audioFile);
+        super(mp4Song.getTrack());
     }
 
-    @Override
-    public void setTitle(final String title) throws TuneJarException {
+    /**
+     * Parses the metadata of a file. A file which cannot be parsed is logged, and results in empty metadata.
+     *
+     * @param mp4File The MP4 (.mp4/.m4a) file to parse.
+     * @return The parsed metadata
+     */
+    private static Track parse(final File mp4File) {
         try {
-            AudioFile f = AudioFileIO.read(audioFile);
-            Mp4Tag tag = (Mp4Tag) f.getTag();
-            tag.setField(tag.createField(Mp4FieldKey.TITLE, title));
-            f.commit();
-            this.title.set(title);
-        } catch (IOException | CannotReadException | InvalidAudioFrameException | ReadOnlyFileException
-                | TagException | CannotWriteException e) {
-            throw new TuneJarException(e);
+            return read(mp4File);
+        } catch (TuneJarException e) {
+            logger.error("Unable to parse: " + mp4File, e);
+            return new Track(mp4File, "", "", "");
         }
     }
 
-    @Override
-    public void setArtist(final String artist) throws TuneJarException {
+    /**
+     * Parses the metadata of a file, using {@link FastTagReader} if possible. A file without a tag is not an error;
+     * its metadata is simply empty.
+     *
+     * @param mp4File The MP4 (.mp4/.m4a) file to parse.
+     * @return The parsed metadata
+     * @throws TuneJarException if the file cannot be parsed
+     */
+    static Track read(final File mp4File) throws TuneJarException {
+        try {
+            Map<FieldKey, String> fields = FastTagReader.readMp4(mp4File);
+            return new Track(mp4File, fields.get(FieldKey.TITLE), fields.get(FieldKey.ARTIST),
+                    fields.get(FieldKey.ALBUM));
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Falling back to JAudioTagger: " + mp4File, e);
+        }
+
+        // Slower than FastTagReader, but handles every tag it can read
         try {
-            AudioFile f = AudioFileIO.read(audioFile);
+            AudioFile f = AudioFileIO.read(mp4File);
+
+            // Parse metadata
             Mp4Tag tag = (Mp4Tag) f.getTag();
-            tag.setField(tag.createField(Mp4FieldKey.ARTIST, artist));
-            f.commit();
-            this.artist.set(artist);
+            return new Track(mp4File, tag.getFirst(Mp4FieldKey.TITLE), tag.getFirst(Mp4FieldKey.ARTIST),
+                    tag.getFirst(Mp4FieldKey.ALBUM));
         } catch (IOException | CannotReadException | InvalidAudioFrameException | ReadOnlyFileException
-                | TagException | CannotWriteException e) {
+                | TagException e) {
             throw new TuneJarException(e);
         }
     }
 
+    /**
+     * Sets the title, artist and album using their MP4-specific keys.
+     */
     @Override
-    public void setAlbum(final String album) throws TuneJarException {
-        try {
-            AudioFile f = AudioFileIO.read(audioFile);
-            Mp4Tag tag = (Mp4Tag) f.getTag();
-            tag.setField(tag.createField(Mp4FieldKey.ALBUM, album));
-            f.commit();
-            this.album.set(album);
-        } catch (IOException | CannotReadException | InvalidAudioFrameException | ReadOnlyFileException
-                | TagException | CannotWriteException e) {
-            throw new TuneJarException(e);
+    protected void setField(final Tag tag, final FieldKey key, final String value) throws FieldDataInvalidException {
+        Mp4FieldKey mp4Key = MP4_FIELD_KEYS.get(key);
+        if (mp4Key == null) {
+            super.setField(tag, key, value);
+            return;
         }
+        Mp4Tag mp4Tag = (Mp4Tag) tag;
+        mp4Tag.setField(mp4Tag.createField(mp4Key, value));
     }
 
     @Override
     protected File getAudioFile() {
-        return audioFile;
+        return getTrack().getFile();
     }
 
 }
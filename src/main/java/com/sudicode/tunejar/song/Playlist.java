@@ -8,9 +8,9 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.function.Predicate;
 
 /**
  * An ordered collection of Song objects.
@@ -21,6 +21,7 @@ public final class Playlist implements List<Song> {
 
     private final List<Song> list = new ArrayList<>();
     private final SimpleStringProperty name;
+    private int version;
 
     // --------------- Constructors --------------- //
 
@@ -51,6 +52,14 @@ public final class Playlist implements List<Song> {
         return name.get();
     }
 
+    /**
+     * @return A number which changes whenever songs are added to, removed from or replaced in this playlist, other
+     * than through its iterators and sub-lists.
+     */
+    public int getVersion() {
+        return version;
+    }
+
     // --------------- Saving --------------- //
 
     /**
@@ -59,13 +68,11 @@ public final class Playlist implements List<Song> {
      * @param options The {@link Options} object to save to
      */
     public void save(final Options options) {
-        LinkedHashMap<String, String> playlists = options.getPlaylists();
         StringBuilder sb = new StringBuilder();
         for (Song song : this) {
             sb.append(song.getAbsoluteFilename()).append(System.lineSeparator());
         }
-        playlists.put(getName(), sb.toString());
-        options.setPlaylists(playlists);
+        options.savePlaylist(getName(), sb.toString());
         logger.info("Successfully saved playlist: " + name.get());
     }
 
@@ -76,6 +83,7 @@ public final class Playlist implements List<Song> {
      */
     @Override
     public boolean add(final Song s) {
+        version++;
         return list.add(SongFactory.duplicate(s));
     }
 
@@ -132,6 +140,7 @@ public final class Playlist implements List<Song> {
 
     @Override
     public boolean remove(Object o) {
+        version++;
         return list.remove(o);
     }
 
@@ -142,21 +151,31 @@ public final class Playlist implements List<Song> {
 
     @Override
     public boolean addAll(int index, Collection<? extends Song> c) {
+        version++;
         return list.addAll(c);
     }
 
     @Override
     public boolean removeAll(Collection<?> c) {
+        version++;
         return list.removeAll(c);
     }
 
     @Override
     public boolean retainAll(Collection<?> c) {
+        version++;
         return list.retainAll(c);
     }
 
+    @Override
+    public boolean removeIf(Predicate<? super Song> filter) {
+        version++;
+        return list.removeIf(filter);
+    }
+
     @Override
     public void clear() {
+        version++;
         list.clear();
     }
 
@@ -167,16 +186,19 @@ public final class Playlist implements List<Song> {
 
     @Override
     public Song set(int index, Song element) {
+        version++;
         return list.set(index, element);
     }
 
     @Override
     public void add(int index, Song element) {
+        version++;
         list.add(index, element);
     }
 
     @Override
     public Song remove(int index) {
+        version++;
         return list.remove(index);
     }
 
@@ -1,13 +1,15 @@
 package com.sudicode.tunejar.song;
 
 import com.sudicode.tunejar.TuneJarException;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
 import org.jaudiotagger.audio.exceptions.CannotWriteException;
 import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
 import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
+import org.jaudiotagger.tag.FieldDataInvalidException;
 import org.jaudiotagger.tag.FieldKey;
 import org.jaudiotagger.tag.Tag;
 import org.jaudiotagger.tag.TagException;
@@ -17,18 +19,28 @@ import org.slf4j.bridge.SLF4JBridgeHandler;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Represents a single audio file that is compatible with TuneJar. Subclasses must override <code>getAudioFile()</code>
  * which will return the file path.
+ * <p>
+ * The metadata of a song is held by its {@link Track}. The properties displayed by the song table are only created
+ * when the table first asks for them, so that songs which are never rendered, including the copies held by
+ * playlists, cost little more than a reference to their track.
  */
 public abstract class Song {
 
     private static final Logger logger = LoggerFactory.getLogger(Song.class);
 
-    protected SimpleStringProperty title;
-    protected SimpleStringProperty artist;
-    protected SimpleStringProperty album;
+    private volatile Track track;
+
+    // Created on demand.
+    private ReadOnlyStringWrapper title;
+    private ReadOnlyStringWrapper artist;
+    private ReadOnlyStringWrapper album;
 
     // Redirect JAudioTagger's JUL to TuneJar's SLF4J
     static {
@@ -37,12 +49,12 @@ public abstract class Song {
     }
 
     /**
-     * Constructs a new Song.
+     * Constructs a new Song backed by an existing {@link Track}. The track is shared, not copied.
+     *
+     * @param track The track
      */
-    protected Song() {
-        title = new SimpleStringProperty("");
-        artist = new SimpleStringProperty("");
-        album = new SimpleStringProperty("");
+    protected Song(final Track track) {
+        this.track = track;
     }
 
     /**
@@ -50,6 +62,50 @@ public abstract class Song {
      */
     protected abstract File getAudioFile();
 
+    /**
+     * @return The metadata of this song. Songs copied from one another share the same {@link Track} until either of
+     * them is edited.
+     */
+    public Track getTrack() {
+        return track;
+    }
+
+    /**
+     * Replaces the metadata of this song after the audio file has been edited.
+     *
+     * @param track The new track
+     */
+    protected void setTrack(final Track track) {
+        this.track = track;
+        if (title != null) {
+            title.set(getTitle());
+        }
+        if (artist != null) {
+            artist.set(getArtist());
+        }
+        if (album != null) {
+            album.set(getAlbum());
+        }
+    }
+
+    /**
+     * Adopts the metadata of another song for the same file, such as one parsed after the file was retagged by
+     * another program. Unlike the setters, this does not write to the audio file.
+     *
+     * @param other A song for the same file
+     * @return <code>true</code> if any of the title, artist or album changed.
+     */
+    public boolean updateFrom(final Song other) {
+        Track current = getTrack();
+        Track updated = other.getTrack();
+        if (current.getTitle().equals(updated.getTitle()) && current.getArtist().equals(updated.getArtist())
+                && current.getAlbum().equals(updated.getAlbum())) {
+            return false;
+        }
+        setTrack(updated);
+        return true;
+    }
+
     /**
      * Finds the absolute path of the audio file. For example, if the audio file
      * is located in 'C:\Users\JohnDoe\Music\B.mp3', then that entire string
@@ -58,7 +114,7 @@ public abstract class Song {
      * @return The absolute path
      */
     public String getAbsoluteFilename() {
-        return getAudioFile().getAbsolutePath();
+        return getTrack().getAbsolutePath();
     }
 
     /**
@@ -69,49 +125,137 @@ public abstract class Song {
      * hard-code this method to return <code>false</code>. In that case, setters
      * should also throw an {@link UnsupportedOperationException}, since setters
      * should <b>not</b> be functional if this method returns false.
+     * <p>
+     * The audio file is not written, so this is cheap enough to call whenever
+     * an editor is about to open.
      *
      * @return True if the song can be edited.
      */
     public boolean canEdit() {
-        try {
-            setTitle(getTitle());
-            setArtist(getArtist());
-            setAlbum(getAlbum());
-            return true;
-        } catch (TuneJarException e) {
-            logger.error("Unable to edit song: " + toString(), e);
+        if (!WritabilityProbe.canWrite(getAudioFile())) {
+            logger.info("Unable to edit song: " + toString());
             return false;
         }
+        return true;
     }
 
     /**
-     * Sets the title in both this object and the audio file.
+     * Sets any number of fields in both this object and the audio file. The file is read and written only once, no
+     * matter how many fields are set, so this should be preferred over calling several setters in a row.
      *
-     * @param title The title
+     * @param fields The new value of each field to set
+     * @throws TuneJarException if an error occurs. In that case, neither this object nor the audio file is changed.
+     */
+    public void update(final Map<FieldKey, String> fields) throws TuneJarException {
+        if (fields.isEmpty()) {
+            return;
+        }
+        commit(fields);
+        apply(fields);
+    }
+
+    /**
+     * Sets any number of fields in the audio file, with a single read and write. This object is not changed.
+     *
+     * @param fields The new value of each field to set
      * @throws TuneJarException if an error occurs.
      */
-    public void setTitle(final String title) throws TuneJarException {
+    void commit(final Map<FieldKey, String> fields) throws TuneJarException {
         try {
             AudioFile f = AudioFileIO.read(getAudioFile());
             Tag tag = f.getTag();
-            tag.setField(FieldKey.TITLE, title);
+            for (Map.Entry<FieldKey, String> field : fields.entrySet()) {
+                setField(tag, field.getKey(), field.getValue());
+            }
             f.commit();
-            this.title.set(title);
         } catch (IOException | CannotReadException | TagException | ReadOnlyFileException
                 | InvalidAudioFrameException | CannotWriteException e) {
             throw new TuneJarException(e);
         }
     }
 
+    /**
+     * Sets any number of fields in this object. The audio file is not changed.
+     *
+     * @param fields The new value of each field to set
+     */
+    void apply(final Map<FieldKey, String> fields) {
+        Track updated = getTrack();
+        for (Map.Entry<FieldKey, String> field : fields.entrySet()) {
+            switch (field.getKey()) {
+                case TITLE:
+                    updated = updated.withTitle(field.getValue());
+                    break;
+                case ARTIST:
+                    updated = updated.withArtist(field.getValue());
+                    break;
+                case ALBUM:
+                    updated = updated.withAlbum(field.getValue());
+                    break;
+                default:
+                    break;
+            }
+        }
+        setTrack(updated);
+    }
+
+    /**
+     * Undoes {@link #apply(Map)} for each field which still has the applied value. Fields which have been changed
+     * again since are left alone.
+     *
+     * @param fields   The fields that were applied
+     * @param previous The metadata of this song before they were applied
+     */
+    void revert(final Map<FieldKey, String> fields, final Track previous) {
+        Map<FieldKey, String> restored = new EnumMap<>(FieldKey.class);
+        for (Map.Entry<FieldKey, String> field : fields.entrySet()) {
+            String value = previous.get(field.getKey());
+            if (value != null && field.getValue().equals(getTrack().get(field.getKey()))) {
+                restored.put(field.getKey(), value);
+            }
+        }
+        apply(restored);
+    }
+
+    /**
+     * Sets a field in a tag which is about to be written to the audio file. Subclasses may override this if their
+     * format needs specific fields.
+     *
+     * @param tag   The tag of the audio file
+     * @param key   The field to set
+     * @param value The new value of the field
+     * @throws FieldDataInvalidException if the value is not valid for the field
+     */
+    protected void setField(final Tag tag, final FieldKey key, final String value) throws FieldDataInvalidException {
+        tag.setField(key, value);
+    }
+
+    /**
+     * Sets the title in both this object and the audio file.
+     *
+     * @param title The title
+     * @throws TuneJarException if an error occurs.
+     */
+    public void setTitle(final String title) throws TuneJarException {
+        update(Collections.singletonMap(FieldKey.TITLE, title));
+    }
+
     /**
      * @return The title of the song.
      */
     public String getTitle() {
-        if ("".equals(title.get())) {
-            return new SimpleStringProperty(getAudioFile().getName()).get();
-        } else {
-            return title.get();
+        String value = getTrack().getTitle();
+        return value.isEmpty() ? getAudioFile().getName() : value;
+    }
+
+    /**
+     * @return The title as displayed by the song table, which is the file name if the song has no title.
+     */
+    public ReadOnlyStringProperty titleProperty() {
+        if (title == null) {
+            title = new ReadOnlyStringWrapper(this, "title", getTitle());
         }
+        return title.getReadOnlyProperty();
     }
 
     /**
@@ -121,23 +265,24 @@ public abstract class Song {
      * @throws TuneJarException if an error occurs.
      */
     public void setArtist(final String artist) throws TuneJarException {
-        try {
-            AudioFile f = AudioFileIO.read(getAudioFile());
-            Tag tag = f.getTag();
-            tag.setField(FieldKey.ARTIST, artist);
-            f.commit();
-            this.artist.set(artist);
-        } catch (IOException | CannotReadException | TagException | ReadOnlyFileException
-                | InvalidAudioFrameException | CannotWriteException e) {
-            throw new TuneJarException(e);
-        }
+        update(Collections.singletonMap(FieldKey.ARTIST, artist));
     }
 
     /**
      * @return The artist of the song.
      */
     public String getArtist() {
-        return artist.get();
+        return getTrack().getArtist();
+    }
+
+    /**
+     * @return The artist as displayed by the song table.
+     */
+    public ReadOnlyStringProperty artistProperty() {
+        if (artist == null) {
+            artist = new ReadOnlyStringWrapper(this, "artist", getArtist());
+        }
+        return artist.getReadOnlyProperty();
     }
 
     /**
@@ -147,23 +292,24 @@ public abstract class Song {
      * @throws TuneJarException if an error occurs.
      */
     public void setAlbum(final String album) throws TuneJarException {
-        try {
-            AudioFile f = AudioFileIO.read(getAudioFile());
-            Tag tag = f.getTag();
-            tag.setField(FieldKey.ALBUM, album);
-            f.commit();
-            this.album.set(album);
-        } catch (IOException | CannotReadException | TagException | ReadOnlyFileException
-                | InvalidAudioFrameException | CannotWriteException e) {
-            throw new TuneJarException(e);
-        }
+        update(Collections.singletonMap(FieldKey.ALBUM, album));
     }
 
     /**
      * @return The album of the song.
      */
     public String getAlbum() {
-        return album.get();
+        return getTrack().getAlbum();
+    }
+
+    /**
+     * @return The album as displayed by the song table.
+     */
+    public ReadOnlyStringProperty albumProperty() {
+        if (album == null) {
+            album = new ReadOnlyStringWrapper(this, "album", getAlbum());
+        }
+        return album.getReadOnlyProperty();
     }
 
     /**
@@ -0,0 +1,278 @@
+package com.sudicode.tunejar.song;
+
+import com.google.common.base.Strings;
+import com.sudicode.tunejar.TuneJarException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * On-disk cache of song metadata. Entries are keyed by absolute path, file size and last-modified time, so a file is
+ * only parsed again once it has changed.
+ */
+public final class SongCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SongCache.class);
+
+    /**
+     * Version of the cache file format. Cache files of any other version are discarded.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Listener which ignores every lookup.
+     */
+    private static final Listener IGNORE = new Listener() {
+        @Override
+        public void cacheHit(final File file) {
+        }
+
+        @Override
+        public void fileParsed(final Song song, final long nanos) {
+        }
+
+        @Override
+        public void parseFailed(final File file) {
+        }
+    };
+
+    private final File cacheFile;
+    private final Listener listener;
+    private final Map<String, Entry> loaded = new ConcurrentHashMap<>();
+    private final Map<String, Entry> retained = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private volatile boolean isLoaded;
+
+    /**
+     * Receives the outcome of every lookup, so that cache hits can be told apart from files which were actually
+     * parsed. Methods are invoked on the thread which looked up the file.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a song was constructed from the cache.
+         *
+         * @param file The audio file
+         */
+        void cacheHit(File file);
+
+        /**
+         * Called when a file was parsed.
+         *
+         * @param song  The parsed song
+         * @param nanos Time taken to parse the file
+         */
+        void fileParsed(Song song, long nanos);
+
+        /**
+         * Called when a file could not be parsed.
+         *
+         * @param file The audio file
+         */
+        void parseFailed(File file);
+
+    }
+
+    /**
+     * Construct a new {@link SongCache}. Nothing is read until {@link #load()} is called.
+     *
+     * @param cacheFile The file used to persist the cache
+     */
+    public SongCache(final File cacheFile) {
+        this(cacheFile, IGNORE);
+    }
+
+    /**
+     * Construct a new {@link SongCache} which reports every lookup. Nothing is read until {@link #load()} is called.
+     *
+     * @param cacheFile The file used to persist the cache
+     * @param listener  Receives the outcome of every lookup
+     */
+    public SongCache(final File cacheFile, final Listener listener) {
+        this.cacheFile = cacheFile;
+        this.listener = listener;
+    }
+
+    /**
+     * Reads the cache file, if it exists and has not been read already. A missing, outdated or corrupt cache file is
+     * not an error; it simply results in an empty cache.
+     */
+    public synchronized void load() {
+        if (isLoaded) {
+            return;
+        }
+        isLoaded = true;
+        if (!cacheFile.isFile()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != VERSION) {
+                logger.info("Discarding outdated song cache: {}", cacheFile);
+                return;
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String path = in.readUTF();
+                loaded.put(path, new Entry(in.readLong(), in.readLong(), in.readUTF(), in.readUTF(), in.readUTF()));
+            }
+            logger.info("Loaded {} entries from song cache: {}", loaded.size(), cacheFile);
+        } catch (IOException e) {
+            logger.error("Failed to read song cache: " + cacheFile, e);
+            loaded.clear();
+        }
+    }
+
+    /**
+     * Starts a complete scan of the library. Only the entries used from now on are written by {@link #save()}, so
+     * files which were deleted since the previous scan are dropped.
+     */
+    public void beginScan() {
+        retained.clear();
+    }
+
+    /**
+     * Gets the {@link Song} for a file. If the file is unchanged since it was cached, the song is constructed from
+     * the cached metadata. Otherwise the file is parsed and the cache is updated. A file which cannot be parsed is
+     * given empty metadata, but is not cached, so it is parsed again next time.
+     *
+     * @param file The audio file
+     * @return The constructed {@link Song}
+     * @throws IllegalArgumentException if the file type is not supported
+     */
+    public Song get(final File file) {
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        Entry entry = loaded.get(path);
+        if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+            hits.incrementAndGet();
+            retained.put(path, entry);
+            listener.cacheHit(file);
+            return SongFactory.create(new Track(file, entry.title, entry.artist, entry.album));
+        }
+
+        misses.incrementAndGet();
+        Song song;
+        long begin = System.nanoTime();
+        try {
+            song = SongFactory.read(file);
+        } catch (TuneJarException e) {
+            logger.error("Unable to parse: " + file, e);
+            listener.parseFailed(file);
+            return SongFactory.create(new Track(file, "", "", ""));
+        }
+        listener.fileParsed(song, System.nanoTime() - begin);
+        Track track = song.getTrack();
+        entry = new Entry(size, lastModified, track.getTitle(), track.getArtist(), track.getAlbum());
+        loaded.put(path, entry);
+        retained.put(path, entry);
+        return song;
+    }
+
+    /**
+     * Writes every entry that has been used since the cache was loaded to the cache file. Entries for files that were
+     * not encountered (for example, deleted files) are dropped, so this should only be called after a complete scan.
+     */
+    public void save() {
+        write(retained);
+    }
+
+    /**
+     * Writes every known entry to the cache file, including those which have not been used since the cache was
+     * loaded. Unlike {@link #save()}, this is safe to call while a scan is still in progress: an interrupted scan
+     * loses neither the files it parsed nor the files it had yet to reach.
+     */
+    public void checkpoint() {
+        write(loaded);
+    }
+
+    /**
+     * Writes entries to the cache file. The file is replaced atomically, so an interrupted write never leaves a
+     * truncated cache behind.
+     *
+     * @param entries Map of absolute paths to entries
+     */
+    private synchronized void write(final Map<String, Entry> entries) {
+        File tmp = new File(cacheFile.getPath() + ".tmp");
+        try {
+            Files.createDirectories(cacheFile.getAbsoluteFile().getParentFile().toPath());
+            Map<String, Entry> snapshot = new HashMap<>(entries);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+                    Entry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.lastModified);
+                    out.writeUTF(entry.title);
+                    out.writeUTF(entry.artist);
+                    out.writeUTF(entry.album);
+                }
+            }
+            Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Saved {} entries to song cache: {}", snapshot.size(), cacheFile);
+        } catch (IOException e) {
+            logger.error("Failed to write song cache: " + cacheFile, e);
+        }
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * @return Number of songs constructed from the cache since the counters were last reset.
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of songs that had to be parsed since the counters were last reset.
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Cached metadata of a single file.
+     */
+    private static final class Entry {
+        private final long size;
+        private final long lastModified;
+        private final String title;
+        private final String artist;
+        private final String album;
+
+        private Entry(long size, long lastModified, String title, String artist, String album) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.title = Strings.nullToEmpty(title);
+            this.artist = Strings.nullToEmpty(artist);
+            this.album = Strings.nullToEmpty(album);
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.sudicode.tunejar.song;
 
+import com.sudicode.tunejar.TuneJarException;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +20,16 @@ public class SongFactory {
     private SongFactory() {
     }
 
+    /**
+     * Checks if a file has the extension of a supported audio format.
+     *
+     * @param file The file to be checked.
+     * @return True if {@link #create(File)} accepts the file.
+     */
+    public static boolean isSupported(final File file) {
+        return FilenameUtils.getExtension(file.getName()).matches("mp3|mp4|m4a|wav");
+    }
+
     /**
      * Constructs a {@link Song} out of a file.
      *
@@ -41,6 +52,50 @@ public class SongFactory {
         throw new IllegalArgumentException("Unsupported file type: " + FilenameUtils.getExtension(file.getName()));
     }
 
+    /**
+     * Constructs a {@link Song} out of a file, like {@link #create(File)}, but reports a file which cannot be parsed
+     * instead of giving it empty metadata.
+     *
+     * @param file The file to be used.
+     * @return The constructed {@link Song}
+     * @throws TuneJarException if the file cannot be parsed
+     * @throws IllegalArgumentException if the file type is not supported
+     */
+    static Song read(final File file) throws TuneJarException {
+        if (file.getName().endsWith(".mp3")) {
+            logger.debug("From file: " + file);
+            return new Mp3Song(Mp3Song.read(file));
+        } else if (file.getName().endsWith(".mp4") || file.getName().endsWith(".m4a")) {
+            logger.debug("From file: " + file);
+            return new Mp4Song(Mp4Song.read(file));
+        } else if (file.getName().endsWith(".wav")) {
+            logger.debug("From file: " + file);
+            return new WavSong(file);
+        }
+
+        throw new IllegalArgumentException("Unsupported file type: " + FilenameUtils.getExtension(file.getName()));
+    }
+
+    /**
+     * Constructs a {@link Song} out of a {@link Track} whose metadata is already known. The file itself is not read.
+     *
+     * @param track The track to be used.
+     * @return The constructed {@link Song}
+     * @throws IllegalArgumentException if the file type is not supported
+     */
+    static Song create(final Track track) {
+        String name = track.getFile().getName();
+        if (name.endsWith(".mp3")) {
+            return new Mp3Song(track);
+        } else if (name.endsWith(".mp4") || name.endsWith(".m4a")) {
+            return new Mp4Song(track);
+        } else if (name.endsWith(".wav")) {
+            return new WavSong(track.getFile());
+        }
+
+        throw new IllegalArgumentException("Unsupported file type: " + FilenameUtils.getExtension(name));
+    }
+
     /**
      * Duplicates a {@link Song} by using its copy constructor.
      *
@@ -0,0 +1,287 @@
+package com.sudicode.tunejar.song;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sudicode.tunejar.TuneJarException;
+import com.sudicode.tunejar.config.Defaults;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import org.jaudiotagger.tag.FieldKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Writes tags to audio files in the background. Edits are applied to the {@link Song} straight away, so the interface
+ * reflects them before the audio file is written. Writes to the same file are applied in the order they were
+ * submitted, while different files are written in parallel. If a write fails, the edit is rolled back.
+ * <p>
+ * Results are reported through the callback executor, which is usually the GUI thread. Songs must only be submitted
+ * from that thread as well.
+ */
+public final class TagWriteQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagWriteQueue.class);
+
+    private final ExecutorService executor;
+    private final Executor callbackExecutor;
+    private final BiConsumer<Song, TuneJarException> onFailure;
+
+    /**
+     * The last write submitted for each file with writes in progress.
+     */
+    private final Map<File, CompletableFuture<Void>> tails = new HashMap<>();
+
+    /**
+     * The size and last-modified time of each file once it was last written, so that the change can be told apart
+     * from changes made by other programs. Each entry is dropped once the change has been recognized, or once a file
+     * watcher would have reported it, whether it is notified or polls.
+     */
+    private final Cache<File, long[]> written = CacheBuilder.newBuilder()
+            .expireAfterWrite(TimeUnit.SECONDS.toMillis(Defaults.WATCH_POLL_INTERVAL) + Defaults.WATCH_DEBOUNCE,
+                    TimeUnit.MILLISECONDS)
+            .build();
+    private int pending;
+    private int failed;
+
+    private final ReadOnlyIntegerWrapper pendingProperty = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyIntegerWrapper failedProperty = new ReadOnlyIntegerWrapper();
+
+    /**
+     * Construct a new {@link TagWriteQueue}.
+     *
+     * @param threads          Maximum number of files written at the same time
+     * @param callbackExecutor Executor used to report results, and to roll back failed edits
+     * @param onFailure        Called after a failed edit has been rolled back
+     */
+    public TagWriteQueue(final int threads, final Executor callbackExecutor,
+                         final BiConsumer<Song, TuneJarException> onFailure) {
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("tag-writer-%d").setDaemon(true).build());
+        this.callbackExecutor = callbackExecutor;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Applies fields to a song, then writes them to its audio file in the background.
+     *
+     * @param song   The song to edit
+     * @param fields The new value of each field to set
+     * @return A future which completes once the audio file has been written, or exceptionally if the edit was
+     * rolled back.
+     */
+    public CompletableFuture<Void> submit(final Song song, final Map<FieldKey, String> fields) {
+        return submit(song, fields, onFailure);
+    }
+
+    /**
+     * Applies the same fields to many songs, then writes them in the background. Only the fields which differ from
+     * each song's current value are written to its audio file. Failed edits are rolled back, but are not reported
+     * one by one; instead, they are collected for a summary.
+     *
+     * @param songs    The songs to edit
+     * @param fields   The new value of each field to set
+     * @param progress Called through the callback executor with the number of songs done so far, whether or not
+     *                 they were written successfully
+     * @return A future which completes once every song is done, with the cause of each failure.
+     */
+    public CompletableFuture<Map<Song, TuneJarException>> submitAll(final List<Song> songs,
+                                                                    final Map<FieldKey, String> fields,
+                                                                    final IntConsumer progress) {
+        Map<Song, TuneJarException> failures = new ConcurrentHashMap<>();
+        AtomicInteger done = new AtomicInteger();
+        CompletableFuture<?>[] writes = new CompletableFuture<?>[songs.size()];
+        for (int i = 0; i < songs.size(); i++) {
+            Song song = songs.get(i);
+            Map<FieldKey, String> changes = new EnumMap<>(FieldKey.class);
+            fields.forEach((key, value) -> {
+                if (!value.equals(song.getTrack().get(key))) {
+                    changes.put(key, value);
+                }
+            });
+            writes[i] = submit(song, changes, (failedSong, e) -> { }).whenComplete((result, e) -> {
+                if (e != null) {
+                    failures.put(song, causeOf(e));
+                }
+                int doneNow = done.incrementAndGet();
+                callbackExecutor.execute(() -> progress.accept(doneNow));
+            });
+        }
+        return CompletableFuture.allOf(writes).handle((result, e) -> failures);
+    }
+
+    /**
+     * Applies fields to a song, then writes them to its audio file in the background.
+     *
+     * @param song      The song to edit
+     * @param fields    The new value of each field to set
+     * @param onFailure Called through the callback executor after a failed edit has been rolled back
+     * @return A future which completes once the audio file has been written, or exceptionally if the edit was
+     * rolled back.
+     */
+    private CompletableFuture<Void> submit(final Song song, final Map<FieldKey, String> fields,
+                                           final BiConsumer<Song, TuneJarException> onFailure) {
+        if (fields.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Map<FieldKey, String> edit = new EnumMap<>(fields);
+        Track previous = song.getTrack();
+        song.apply(edit);
+
+        File file = song.getAudioFile().getAbsoluteFile();
+        CompletableFuture<Void> write;
+        synchronized (this) {
+            CompletableFuture<Void> tail = tails.get(file);
+            if (tail == null) {
+                write = CompletableFuture.runAsync(() -> commit(song, edit, file), executor);
+            } else {
+                // Runs after the previous write to the same file, whether or not it succeeded
+                write = tail.handle((result, e) -> null).thenRunAsync(() -> commit(song, edit, file), executor);
+            }
+            tails.put(file, write);
+            pending++;
+        }
+        publishCounts();
+
+        // The returned future completes after the rollback has been handed to the callback executor
+        return write.whenComplete((result, e) -> {
+            synchronized (this) {
+                tails.remove(file, write);
+                pending--;
+                if (e != null) {
+                    failed++;
+                }
+                notifyAll();
+            }
+            publishCounts();
+            if (e != null) {
+                TuneJarException cause = causeOf(e);
+                logger.error("Failed to write tags, rolling back: " + file, cause);
+                callbackExecutor.execute(() -> {
+                    song.revert(edit, previous);
+                    onFailure.accept(song, cause);
+                });
+            }
+        });
+    }
+
+    /**
+     * @param e The exception with which a write completed
+     * @return The reason that the write failed.
+     */
+    private static TuneJarException causeOf(final Throwable e) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        return cause instanceof TuneJarException ? (TuneJarException) cause : new TuneJarException(cause);
+    }
+
+    /**
+     * Writes fields to the audio file of a song. Runs on a writer thread.
+     *
+     * @param song   The song
+     * @param fields The fields to write
+     * @param file   The absolute audio file
+     */
+    private void commit(final Song song, final Map<FieldKey, String> fields, final File file) {
+        try {
+            long begin = System.nanoTime();
+            song.commit(fields);
+            written.put(file, new long[]{file.length(), file.lastModified()});
+            logger.debug("Wrote {} to {} in {}ms", fields.keySet(), song.getAbsoluteFilename(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        } catch (TuneJarException | RuntimeException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Checks if a change to a file was made by this queue, such as one reported by a file watcher. The song was
+     * edited before its file was written, so such a change does not need to be read back. A finished write is only
+     * recognized once, since the watcher reports each change once.
+     *
+     * @param file An audio file
+     * @return <code>true</code> if the file is being written, or has not changed since it was last written.
+     */
+    public boolean isOwnChange(final File file) {
+        File absolute = file.getAbsoluteFile();
+        synchronized (this) {
+            if (tails.containsKey(absolute)) {
+                return true;
+            }
+        }
+        long[] stamp = written.getIfPresent(absolute);
+        if (stamp == null) {
+            return false;
+        }
+        written.asMap().remove(absolute, stamp);
+        return stamp[0] == absolute.length() && stamp[1] == absolute.lastModified();
+    }
+
+    /**
+     * Waits for every pending write to finish.
+     *
+     * @param timeout Maximum time to wait
+     * @param unit    Unit of the timeout
+     * @return <code>true</code> if no writes are pending, or <code>false</code> if the timeout elapsed first.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean drain(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (pending > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                logger.warn("{} tag writes are still pending.", pending);
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Updates the count properties through the callback executor. The counts are read when the update runs, so
+     * updates which run out of order still leave the latest counts behind.
+     */
+    private void publishCounts() {
+        callbackExecutor.execute(() -> {
+            int pendingNow;
+            int failedNow;
+            synchronized (this) {
+                pendingNow = pending;
+                failedNow = failed;
+            }
+            pendingProperty.set(pendingNow);
+            failedProperty.set(failedNow);
+        });
+    }
+
+    /**
+     * @return Number of writes which are queued or in progress. Updated through the callback executor.
+     */
+    public ReadOnlyIntegerProperty pendingProperty() {
+        return pendingProperty.getReadOnlyProperty();
+    }
+
+    /**
+     * @return Number of writes which have failed. Updated through the callback executor.
+     */
+    public ReadOnlyIntegerProperty failedProperty() {
+        return failedProperty.getReadOnlyProperty();
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.sudicode.tunejar.song;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalizes text so that songs can be searched and sorted without regard to case or accents. {@link Track}s keep the
+ * keys of their fields, so each field is only normalized once.
+ */
+public final class TextKeys {
+
+    /**
+     * Collators are not thread-safe, so each thread has its own. Sort keys are made of folded text, so only primary
+     * differences between letters matter.
+     */
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(() -> {
+        Collator collator = Collator.getInstance();
+        collator.setStrength(Collator.PRIMARY);
+        return collator;
+    });
+
+    /**
+     * Artists and albums are shared by many tracks, so their sort keys are shared as well, for as long as any track
+     * holds them.
+     */
+    private static final Cache<String, CollationKey> SORT_KEYS = CacheBuilder.newBuilder().weakValues().build();
+
+    /**
+     * Folded form of each character in the Latin blocks, up to Latin Extended-B.
+     */
+    private static final String[] LATIN = new String[0x250];
+
+    static {
+        for (char c = 0; c < LATIN.length; c++) {
+            LATIN[c] = foldSlowly(String.valueOf(c));
+        }
+    }
+
+    /**
+     * Illegal.
+     */
+    private TextKeys() {
+    }
+
+    /**
+     * Folds text for searching. Letters are lowercased with their accents removed, so that "Beyonc&eacute;" and
+     * "BEYONCE" both fold to "beyonce". Compatibility characters such as ligatures are replaced by their plain
+     * equivalents.
+     *
+     * @param text The text
+     * @return The folded text, which is the same instance if the text was already folded.
+     */
+    public static String fold(final String text) {
+        if (isFoldedAscii(text)) {
+            return text;
+        }
+
+        // Latin text is folded one character at a time.
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= LATIN.length) {
+                return foldSlowly(text);
+            }
+            sb.append(LATIN[c]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Folds any text, by normalizing the whole string.
+     *
+     * @param text The text
+     * @return The folded text.
+     */
+    private static String foldSlowly(final String text) {
+        // Uppercasing first expands characters such as the German sharp s.
+        String lower = text.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+        if (isFoldedAscii(lower)) {
+            return lower;
+        }
+        String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFKD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            switch (Character.getType(c)) {
+                case Character.NON_SPACING_MARK:
+                case Character.COMBINING_SPACING_MARK:
+                case Character.ENCLOSING_MARK:
+                    break;
+                default:
+                    sb.append(unaccent(c));
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param c A lowercase character
+     * @return The plain letters for a letter which has no decomposition, or the character itself.
+     */
+    private static String unaccent(final char c) {
+        switch (c) {
+            case '\u00F8':
+                return "o";
+            case '\u0142':
+                return "l";
+            case '\u0111':
+                return "d";
+            case '\u00E6':
+                return "ae";
+            case '\u0153':
+                return "oe";
+            case '\u00FE':
+                return "th";
+            case '\u0131':
+                return "i";
+            default:
+                return String.valueOf(c);
+        }
+    }
+
+    /**
+     * @param text The text
+     * @return <code>true</code> if the text only consists of ASCII characters, none of them uppercase.
+     */
+    private static boolean isFoldedAscii(final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the key by which text is sorted. The text is folded, a leading "The " is ignored, and the rest is
+     * collated according to the default locale.
+     *
+     * @param text The text
+     * @return The sort key.
+     */
+    public static CollationKey sortKey(final String text) {
+        return sortKey(text, true);
+    }
+
+    /**
+     * Computes the key by which text is sorted.
+     *
+     * @param text   The text
+     * @param shared <code>true</code> if the text is likely to be shared by many tracks, so that its key is worth
+     *               caching
+     * @return The sort key.
+     * @see #sortKey(String)
+     */
+    static CollationKey sortKey(final String text, final boolean shared) {
+        String folded = fold(text);
+        if (folded.startsWith("the ") && folded.length() > 4) {
+            folded = folded.substring(4);
+        }
+        if (!shared) {
+            return COLLATOR.get().getCollationKey(folded);
+        }
+        CollationKey sortKey = SORT_KEYS.getIfPresent(folded);
+        if (sortKey == null) {
+            sortKey = COLLATOR.get().getCollationKey(folded);
+            SORT_KEYS.put(folded, sortKey);
+        }
+        return sortKey;
+    }
+
+}
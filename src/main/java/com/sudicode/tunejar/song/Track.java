@@ -0,0 +1,221 @@
+package com.sudicode.tunejar.song;
+
+import com.google.common.base.Strings;
+import org.jaudiotagger.tag.FieldKey;
+
+import java.io.File;
+import java.text.CollationKey;
+
+/**
+ * Immutable metadata of a single audio file. Every {@link Song} backed by the same file can share one instance, so
+ * copying a song never requires reading the file again. Editing a song replaces its track instead of modifying it.
+ * <p>
+ * The search and sort keys of the title, artist and album are computed by {@link TextKeys} the first time they are
+ * needed, then kept with the track. Since a track never changes, neither do its keys.
+ * <p>
+ * Large libraries hold hundreds of thousands of tracks, most of which share their artist, album and directory with
+ * many others. Those values are looked up in the {@link TrackDictionary}, so each track only refers to a shared
+ * instance, and the path of the file is split into a shared directory and a file name.
+ */
+public final class Track {
+
+    private final File directory;
+    private final String name;
+    private final String title;
+    private final String artist;
+    private final String album;
+
+    // Indexed by field: title, artist, album. Allocated and computed on demand, since most tracks are never searched
+    // or sorted by every field. A race only computes the same key twice.
+    private String[] searchKeys;
+    private CollationKey[] sortKeys;
+
+    // Computed on demand, like the keys.
+    private String absolutePath;
+
+    /**
+     * Constructor.
+     *
+     * @param file   The audio file
+     * @param title  The title, or <code>null</code> if unknown
+     * @param artist The artist, or <code>null</code> if unknown
+     * @param album  The album, or <code>null</code> if unknown
+     */
+    public Track(final File file, final String title, final String artist, final String album) {
+        this(TrackDictionary.intern(file.getParentFile()), file.getName(), Strings.nullToEmpty(title),
+                TrackDictionary.intern(Strings.nullToEmpty(artist)),
+                TrackDictionary.intern(Strings.nullToEmpty(album)));
+    }
+
+    /**
+     * Constructor for values which are already canonical.
+     *
+     * @param directory The directory of the audio file, or <code>null</code> if the path has none
+     * @param name      The name of the audio file
+     * @param title     The title
+     * @param artist    The artist
+     * @param album     The album
+     */
+    private Track(final File directory, final String name, final String title, final String artist,
+                  final String album) {
+        this.directory = directory;
+        this.name = name;
+        this.title = title;
+        this.artist = artist;
+        this.album = album;
+    }
+
+    /**
+     * @return The audio file. A new instance is returned by each call.
+     */
+    public File getFile() {
+        return new File(directory, name);
+    }
+
+    /**
+     * @return The absolute path of the audio file. Songs are identified by this path, so unlike the file itself, it
+     * is only computed once.
+     */
+    public String getAbsolutePath() {
+        String path = absolutePath;
+        if (path == null) {
+            path = getFile().getAbsolutePath();
+            absolutePath = path;
+        }
+        return path;
+    }
+
+    /**
+     * @return The title as stored in the file. Empty if the file has no title.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return The artist. Empty if the file has no artist.
+     */
+    public String getArtist() {
+        return artist;
+    }
+
+    /**
+     * @return The album. Empty if the file has no album.
+     */
+    public String getAlbum() {
+        return album;
+    }
+
+    /**
+     * @param key A field
+     * @return The value of the field, or <code>null</code> if tracks do not hold it.
+     */
+    public String get(final FieldKey key) {
+        switch (key) {
+            case TITLE:
+                return title;
+            case ARTIST:
+                return artist;
+            case ALBUM:
+                return album;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param key TITLE, ARTIST or ALBUM
+     * @return The field folded for searching. An untitled track is searched by its file name.
+     * @throws IllegalArgumentException if tracks do not hold the field
+     * @see TextKeys#fold(String)
+     */
+    public String getSearchKey(final FieldKey key) {
+        int i = indexOf(key);
+        String[] keys = searchKeys;
+        if (keys == null) {
+            keys = new String[3];
+            searchKeys = keys;
+        }
+        String searchKey = keys[i];
+        if (searchKey == null) {
+            searchKey = TextKeys.fold(getDisplayed(key));
+            if (key != FieldKey.TITLE) {
+                searchKey = TrackDictionary.intern(searchKey);
+            }
+            keys[i] = searchKey;
+        }
+        return searchKey;
+    }
+
+    /**
+     * @param key TITLE, ARTIST or ALBUM
+     * @return The key by which the field is sorted. An untitled track is sorted by its file name.
+     * @throws IllegalArgumentException if tracks do not hold the field
+     * @see TextKeys#sortKey(String)
+     */
+    public CollationKey getSortKey(final FieldKey key) {
+        int i = indexOf(key);
+        CollationKey[] keys = sortKeys;
+        if (keys == null) {
+            keys = new CollationKey[3];
+            sortKeys = keys;
+        }
+        CollationKey sortKey = keys[i];
+        if (sortKey == null) {
+            // The folded title is shared with the search key. Titles are rarely shared, so their keys are not cached.
+            sortKey = TextKeys.sortKey(getSearchKey(key), key != FieldKey.TITLE);
+            keys[i] = sortKey;
+        }
+        return sortKey;
+    }
+
+    /**
+     * @param key TITLE, ARTIST or ALBUM
+     * @return The field as the song table displays it.
+     */
+    private String getDisplayed(final FieldKey key) {
+        return key == FieldKey.TITLE && title.isEmpty() ? name : get(key);
+    }
+
+    /**
+     * @param key TITLE, ARTIST or ALBUM
+     * @return The position of the field's keys.
+     */
+    private static int indexOf(final FieldKey key) {
+        switch (key) {
+            case TITLE:
+                return 0;
+            case ARTIST:
+                return 1;
+            case ALBUM:
+                return 2;
+            default:
+                throw new IllegalArgumentException("Tracks do not hold " + key);
+        }
+    }
+
+    /**
+     * @param newTitle The new title
+     * @return A copy of this track with a different title.
+     */
+    Track withTitle(final String newTitle) {
+        return new Track(directory, name, Strings.nullToEmpty(newTitle), artist, album);
+    }
+
+    /**
+     * @param newArtist The new artist
+     * @return A copy of this track with a different artist.
+     */
+    Track withArtist(final String newArtist) {
+        return new Track(directory, name, title, TrackDictionary.intern(Strings.nullToEmpty(newArtist)), album);
+    }
+
+    /**
+     * @param newAlbum The new album
+     * @return A copy of this track with a different album.
+     */
+    Track withAlbum(final String newAlbum) {
+        return new Track(directory, name, title, artist, TrackDictionary.intern(Strings.nullToEmpty(newAlbum)));
+    }
+
+}
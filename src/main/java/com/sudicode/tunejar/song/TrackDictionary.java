@@ -0,0 +1,40 @@
+package com.sudicode.tunejar.song;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.io.File;
+
+/**
+ * Canonical instances of the values which many {@link Track}s have in common: artists, albums, their search keys,
+ * and directories. Each distinct value is held once, however many tracks refer to it, so a track only pays for a
+ * reference. Values are forgotten once no track refers to them.
+ */
+final class TrackDictionary {
+
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+    private static final Interner<File> DIRECTORIES = Interners.newWeakInterner();
+
+    /**
+     * Illegal.
+     */
+    private TrackDictionary() {
+    }
+
+    /**
+     * @param value A string, which may be <code>null</code>
+     * @return The canonical instance of the string, or <code>null</code>.
+     */
+    static String intern(final String value) {
+        return value == null ? null : STRINGS.intern(value);
+    }
+
+    /**
+     * @param directory A directory, which may be <code>null</code>
+     * @return The canonical instance of the directory, or <code>null</code>.
+     */
+    static File intern(final File directory) {
+        return directory == null ? null : DIRECTORIES.intern(directory);
+    }
+
+}
@@ -1,21 +1,22 @@
 package com.sudicode.tunejar.song;
 
+import org.jaudiotagger.tag.FieldKey;
+
 import java.io.File;
+import java.util.Map;
 
 /**
  * WAV file. Currently does not support reading or writing of metadata.
  */
 public final class WavSong extends Song {
 
-    private final File audioFile;
-
     /**
      * Constructor.
      *
      * @param wavFile The WAV (.wav) file to use.
      */
     WavSong(final File wavFile) {
-        audioFile = wavFile;
+        super(new Track(wavFile, "", "", ""));
     }
 
     /**
@@ -24,7 +25,7 @@ public final class WavSong extends Song {
      * @param wavSong The {@link WavSong} to copy.
      */
     WavSong(final WavSong wavSong) {
-        this(wavSong.audioFile);
+        super(wavSong.getTrack());
     }
 
     @Override
@@ -32,6 +33,11 @@ public final class WavSong extends Song {
         return false;
     }
 
+    @Override
+    void commit(final Map<FieldKey, String> fields) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void setTitle(final String title) {
         throw new UnsupportedOperationException();
@@ -49,7 +55,7 @@ public final class WavSong extends Song {
 
     @Override
     protected File getAudioFile() {
-        return audioFile;
+        return getTrack().getFile();
     }
 
 }
@@ -0,0 +1,114 @@
+package com.sudicode.tunejar.song;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.Files;
+import com.sudicode.tunejar.config.Defaults;
+import org.jaudiotagger.audio.SupportedFileFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Checks whether the tags of an audio file can be written, without writing to it. The result for each file is cached
+ * until the file is modified, for up to {@link Defaults#WRITABILITY_CACHE_SIZE} files.
+ */
+final class WritabilityProbe {
+
+    private static final Logger logger = LoggerFactory.getLogger(WritabilityProbe.class);
+
+    private static final Set<String> SUPPORTED_EXTENSIONS = Arrays.stream(SupportedFileFormat.values())
+            .map(SupportedFileFormat::getFilesuffix)
+            .collect(Collectors.toSet());
+
+    private static final Cache<File, Result> cache = CacheBuilder.newBuilder()
+            .maximumSize(Defaults.WRITABILITY_CACHE_SIZE).build();
+
+    /**
+     * Illegal.
+     */
+    private WritabilityProbe() {
+    }
+
+    /**
+     * @param file The audio file
+     * @return <code>true</code> if the tags of the file can be written.
+     */
+    static boolean canWrite(final File file) {
+        File key = file.getAbsoluteFile();
+        long lastModified = key.lastModified();
+        long length = key.length();
+        Result result = cache.getIfPresent(key);
+        if (result == null || result.lastModified != lastModified || result.length != length) {
+            result = new Result(lastModified, length, probe(key));
+            cache.put(key, result);
+        }
+        return result.writable;
+    }
+
+    /**
+     * Checks that the file exists, that its format has a tag writer, that both it and its directory (in which some
+     * tag writers create a temporary file) are writable, and that no other process holds a lock on it.
+     *
+     * @param file The audio file
+     * @return <code>true</code> if the tags of the file can be written.
+     */
+    private static boolean probe(final File file) {
+        if (!file.isFile()) {
+            logger.debug("Not a file: {}", file);
+            return false;
+        }
+        if (!SUPPORTED_EXTENSIONS.contains(Files.getFileExtension(file.getName()).toLowerCase(Locale.ROOT))) {
+            logger.debug("No tag writer for: {}", file);
+            return false;
+        }
+        Path path = file.toPath();
+        if (!java.nio.file.Files.isWritable(path) || !java.nio.file.Files.isWritable(path.getParent())) {
+            logger.debug("Not writable: {}", file);
+            return false;
+        }
+
+        // Opening the file for writing neither truncates nor touches it
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+             FileLock lock = channel.tryLock()) {
+            if (lock == null) {
+                logger.debug("Locked by another process: {}", file);
+                return false;
+            }
+            return true;
+        } catch (OverlappingFileLockException e) {
+            logger.debug("Locked by TuneJar: {}", file);
+            return false;
+        } catch (IOException e) {
+            logger.debug("Cannot open for writing: " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Result of probing a file, along with the state of the file at the time.
+     */
+    private static final class Result {
+        private final long lastModified;
+        private final long length;
+        private final boolean writable;
+
+        private Result(final long lastModified, final long length, final boolean writable) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.writable = writable;
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.sudicode.tunejar.config;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.prefs.Preferences;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link Options} class.
+ */
+public class OptionsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Preferences prefs;
+    private PlaylistStore playlistStore;
+
+    @Before
+    public void setUp() {
+        prefs = Preferences.userRoot().node("com/sudicode/tunejar/test/" + getClass().getSimpleName());
+        playlistStore = new PlaylistStore(folder.getRoot());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        prefs.removeNode();
+    }
+
+    /**
+     * Collection-valued options should be read back by a new instance, and should not be shared with callers.
+     */
+    @Test
+    public void testSaveAndLoad() {
+        LinkedHashSet<File> directories = new LinkedHashSet<>(Arrays.asList(new File("b"), new File("a")));
+        Options options = new Options(prefs, playlistStore);
+        options.setDirectories(directories);
+        options.setSortOrder("artist", "title");
+        options.getSortOrder()[0] = "album";
+        options.flush();
+
+        Options reloaded = new Options(prefs, playlistStore);
+        assertThat(reloaded.getDirectories(), contains(new File("b"), new File("a")));
+        assertThat(reloaded.getSortOrder(), is(arrayContaining("artist", "title")));
+        assertThat(reloaded.getColumnOrder(), is(equalTo(Defaults.COLUMN_ORDER)));
+        assertThat(prefs.getInt("version", 1), is(2));
+    }
+
+    /**
+     * Playlists should be read once, and kept up to date as they are saved, renamed and deleted.
+     */
+    @Test
+    public void testPlaylists() {
+        playlistStore.save("First", "a.mp3");
+        Options options = new Options(prefs, playlistStore);
+        options.savePlaylist("Second", "b.mp3");
+        options.savePlaylist("Third", "c.mp3");
+        options.renamePlaylist("Second", "Renamed");
+        options.deletePlaylist("Third");
+        options.savePlaylist("First", "d.mp3");
+        assertThat(options.getPlaylists().keySet(), contains("First", "Renamed"));
+        assertThat(options.getPlaylists().values(), contains("d.mp3", "b.mp3"));
+        assertThat(new Options(prefs, playlistStore).getPlaylists(), is(equalTo(options.getPlaylists())));
+
+        // The playlists are not read again, and are not shared with callers
+        options.getPlaylists().clear();
+        playlistStore.save("First", "e.mp3");
+        assertThat(options.getPlaylists().get("First"), is("d.mp3"));
+    }
+
+    /**
+     * Options serialized by earlier versions should be converted.
+     */
+    @Test
+    public void testMigration() {
+        LinkedHashSet<File> directories = new LinkedHashSet<>(Arrays.asList(new File("music"), new File("more")));
+        prefs.putByteArray("directories", SerializationUtils.serialize(directories));
+        prefs.putByteArray("columnOrder", SerializationUtils.serialize(new String[]{"Album", "Title", "Artist"}));
+
+        Options options = new Options(prefs, playlistStore);
+        assertThat(options.getDirectories(), is(equalTo(directories)));
+        assertThat(options.getColumnOrder(), is(arrayContaining("Album", "Title", "Artist")));
+        assertThat(options.getSortOrder(), is(emptyArray()));
+
+        options.flush();
+        assertThat(prefs.get("columnOrder", null), is("Album\nTitle\nArtist"));
+    }
+
+    /**
+     * Serialized options containing classes that were never stored should be rejected, not deserialized.
+     */
+    @Test
+    public void testMigrationRejectsUnexpectedClasses() {
+        prefs.putByteArray("directories", SerializationUtils.serialize(new ArrayList<>(Arrays.asList("a", "b"))));
+
+        Options options = new Options(prefs, playlistStore);
+        assertThat(options.getDirectories(), is(equalTo(Defaults.DIRECTORIES)));
+    }
+
+}
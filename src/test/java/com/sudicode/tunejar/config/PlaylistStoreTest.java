@@ -0,0 +1,154 @@
+package com.sudicode.tunejar.config;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.prefs.Preferences;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link PlaylistStore} class.
+ */
+public class PlaylistStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private PlaylistStore store;
+
+    @Before
+    public void setUp() {
+        directory = new File(folder.getRoot(), "playlists");
+        store = new PlaylistStore(directory);
+    }
+
+    /**
+     * Saved playlists should be loaded by a new store in the same order, including names which are not valid file
+     * names.
+     */
+    @Test
+    public void testSaveAndLoad() {
+        store.save("Rock/Pop", "a.mp3\n");
+        store.save("Jazz", "b.mp3\n");
+        store.save("Rock/Pop", "a.mp3\nc.mp3\n");
+
+        LinkedHashMap<String, String> playlists = new PlaylistStore(directory).loadAll();
+        assertThat(playlists.keySet(), contains("Rock/Pop", "Jazz"));
+        assertThat(playlists.get("Rock/Pop"), is("a.mp3\nc.mp3\n"));
+    }
+
+    /**
+     * Saving a playlist should not rewrite any other playlist.
+     */
+    @Test
+    public void testSaveTouchesOnlyOnePlaylist() {
+        store.save("One", "a.mp3\n");
+        store.save("Two", "b.mp3\n");
+        File[] before = directory.listFiles();
+        assertNotNull(before);
+        for (File file : before) {
+            assertTrue(file.setLastModified(0));
+        }
+
+        store.save("Two", "c.mp3\n");
+        File[] after = directory.listFiles(file -> file.lastModified() != 0);
+        assertNotNull(after);
+        assertThat(after.length, is(1));
+        assertThat(after[0].getName(), is("Two.m3u"));
+    }
+
+    /**
+     * Renaming a playlist should keep its position, and deleting it should remove it.
+     */
+    @Test
+    public void testRenameAndDelete() {
+        store.save("One", "a.mp3\n");
+        store.save("Two", "b.mp3\n");
+        store.rename("One", "Uno");
+        assertThat(store.loadAll().keySet(), contains("Uno", "Two"));
+        assertThat(store.loadAll().get("Uno"), is("a.mp3\n"));
+
+        store.delete("Uno");
+        assertThat(new PlaylistStore(directory).loadAll().keySet(), contains("Two"));
+    }
+
+    /**
+     * Renaming a playlist onto the title of another one, in any case, should be rejected without touching either.
+     */
+    @Test
+    public void testRenameConflict() {
+        store.save("Rock", "a.mp3\n");
+        store.save("Jazz", "b.mp3\n");
+        try {
+            store.rename("Jazz", "rock");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertThat(store.loadAll().keySet(), contains("Rock", "Jazz"));
+        assertThat(store.loadAll().get("Rock"), is("a.mp3\n"));
+    }
+
+    /**
+     * Replacing all playlists should delete the files of the playlists which are gone, and keep the others.
+     */
+    @Test
+    public void testReplaceAll() {
+        store.save("One", "a.mp3\n");
+        store.save("Two", "b.mp3\n");
+        LinkedHashMap<String, String> playlists = new LinkedHashMap<>();
+        playlists.put("Three", "c.mp3\n");
+        playlists.put("Two", "d.mp3\n");
+        store.replaceAll(playlists);
+
+        assertThat(new PlaylistStore(directory).loadAll(), is(equalTo(playlists)));
+        assertFalse(new File(directory, "One.m3u").exists());
+    }
+
+    /**
+     * Playlists stored in preferences by earlier versions should be moved to the store.
+     */
+    @Test
+    public void testMigration() throws Exception {
+        Preferences prefs = Preferences.userRoot().node("com/sudicode/tunejar/test/" + getClass().getSimpleName());
+        try {
+            LinkedHashMap<String, String> old = new LinkedHashMap<>();
+            old.put("Old", "a.mp3\n");
+            prefs.putByteArray("playlists", SerializationUtils.serialize(old));
+
+            Options options = new Options(prefs, store);
+            assertThat(options.getPlaylists(), is(equalTo(old)));
+            options.flush();
+            assertThat(prefs.getByteArray("playlists", null), is(nullValue()));
+            assertThat(new PlaylistStore(directory).loadAll(), is(equalTo(old)));
+        } finally {
+            prefs.removeNode();
+        }
+    }
+
+    /**
+     * Playlists which cannot be migrated should be kept in preferences, so the migration is attempted again.
+     */
+    @Test
+    public void testFailedMigrationKeepsPlaylists() throws Exception {
+        Preferences prefs = Preferences.userRoot().node("com/sudicode/tunejar/test/" + getClass().getSimpleName());
+        try {
+            prefs.putByteArray("playlists", new byte[]{1, 2, 3});
+
+            Options options = new Options(prefs, store);
+            assertThat(options.getPlaylists().isEmpty(), is(true));
+            options.flush();
+            assertThat(prefs.getByteArray("playlists", null), is(notNullValue()));
+        } finally {
+            prefs.removeNode();
+        }
+    }
+
+}
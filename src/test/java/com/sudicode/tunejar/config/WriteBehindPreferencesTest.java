@@ -0,0 +1,102 @@
+package com.sudicode.tunejar.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.prefs.Preferences;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static com.jayway.awaitility.Duration.FIVE_SECONDS;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link WriteBehindPreferences} class.
+ */
+public class WriteBehindPreferencesTest {
+
+    private Preferences backing;
+
+    @Before
+    public void setUp() {
+        backing = Preferences.userRoot().node("com/sudicode/tunejar/test/" + getClass().getSimpleName());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (backing.nodeExists("")) {
+            backing.removeNode();
+        }
+    }
+
+    /**
+     * Writes should be served from memory, and only reach the backing node once flushed.
+     */
+    @Test
+    public void testFlush() throws Exception {
+        Preferences prefs = new WriteBehindPreferences(backing, 60000);
+        for (int i = 0; i <= 100; i++) {
+            prefs.putDouble("windowWidth", i);
+        }
+        assertThat(prefs.getDouble("windowWidth", -1), is(100.0));
+        assertThat(backing.get("windowWidth", null), is(nullValue()));
+
+        prefs.flush();
+        assertThat(backing.getDouble("windowWidth", -1), is(100.0));
+    }
+
+    /**
+     * Writes should reach the backing node by themselves once no write has happened for the delay.
+     */
+    @Test
+    public void testDelayedWrite() throws Exception {
+        Preferences prefs = new WriteBehindPreferences(backing, 100);
+        prefs.put("theme", "Dark");
+        await().atMost(FIVE_SECONDS).until(() -> backing.get("theme", null), is("Dark"));
+
+        prefs.remove("theme");
+        assertThat(prefs.get("theme", null), is(nullValue()));
+        await().atMost(FIVE_SECONDS).until(() -> backing.get("theme", null), is(nullValue()));
+    }
+
+    /**
+     * Clearing should remove both pending and written keys.
+     */
+    @Test
+    public void testClear() throws Exception {
+        Preferences prefs = new WriteBehindPreferences(backing, 60000);
+        prefs.put("written", "a");
+        prefs.flush();
+        prefs.put("pending", "b");
+        assertThat(prefs.keys(), arrayContainingInAnyOrder("written", "pending"));
+
+        prefs.clear();
+        prefs.flush();
+        assertThat(prefs.keys(), is(emptyArray()));
+        assertThat(backing.keys(), is(emptyArray()));
+    }
+
+    /**
+     * Child nodes should buffer their writes like their parent, and removing a node should remove its backing node.
+     */
+    @Test
+    public void testChildren() throws Exception {
+        Preferences prefs = new WriteBehindPreferences(backing, 60000);
+        Preferences child = prefs.node("child");
+        child.put("theme", "Dark");
+        assertThat(backing.nodeExists("child"), is(true));
+        assertThat(backing.node("child").get("theme", null), is(nullValue()));
+
+        prefs.flush();
+        assertThat(backing.node("child").get("theme", null), is("Dark"));
+        assertThat(prefs.childrenNames(), arrayContaining("child"));
+
+        child.removeNode();
+        assertThat(backing.nodeExists("child"), is(false));
+        prefs.put("pending", "a");
+        prefs.removeNode();
+        assertThat(backing.nodeExists(""), is(false));
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.sudicode.tunejar.library;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.Track;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link BrowseIndex} class.
+ */
+public class BrowseIndexTest {
+
+    private final BrowseIndex index = new BrowseIndex();
+
+    /**
+     * @return A song which is not backed by a real file.
+     */
+    private static Song song(String path, String songArtist, String songAlbum) {
+        return new Song(new Track(new File(path), "", songArtist, songAlbum)) {
+            @Override
+            protected File getAudioFile() {
+                return getTrack().getFile();
+            }
+        };
+    }
+
+    private static List<String> names(List<BrowseIndex.Group> groups) {
+        return groups.stream().map(BrowseIndex.Group::toString).collect(Collectors.toList());
+    }
+
+    /**
+     * Songs should be grouped by artist and album, in the order of the song table, with their counts.
+     */
+    @Test
+    public void testGroups() {
+        Song one = song("music/beatles/1.mp3", "The Beatles", "Abbey Road");
+        Song two = song("music/beatles/2.mp3", "The Beatles", "Abbey Road");
+        Song three = song("music/beatles/3.mp3", "The Beatles", "Help!");
+        Song four = song("music/abba/4.mp3", "ABBA", "Gold");
+        Song five = song("music/various/5.mp3", "Various", "Gold");
+        Song six = song("music/6.mp3", "", "");
+        for (Song song : new Song[]{one, two, three, four, five, six}) {
+            index.put(song);
+        }
+
+        assertThat(index.size(), is(6));
+        assertThat(names(index.getArtists()), contains(" (1)", "ABBA (1)", "The Beatles (3)", "Various (1)"));
+        assertThat(index.getArtists().get(2).getGroupCount(), is(2));
+        assertThat(names(index.getAlbums("The Beatles")), contains("Abbey Road (2)", "Help! (1)"));
+        assertThat(names(index.getAlbums()), contains(" (1)", "Abbey Road (2)", "Gold (2)", "Help! (1)"));
+        assertThat(index.getAlbums().get(2).getGroupCount(), is(2));
+        assertThat(index.getAlbums("Nobody"), is(empty()));
+
+        assertThat(index.getSongs("The Beatles", null), contains(one, two, three));
+        assertThat(index.getSongs("The Beatles", "Help!"), contains(three));
+        assertThat(index.getSongs(null, "Gold"), contains(four, five));
+        assertThat(index.getSongs("ABBA", "Help!"), is(empty()));
+        assertThat(index.getSongs(null, null), hasSize(6));
+    }
+
+    /**
+     * Retagged and removed songs should leave their groups, and empty groups should disappear.
+     */
+    @Test
+    public void testUpdates() {
+        Song one = song("music/a/1.mp3", "Artist", "First");
+        Song two = song("music/a/2.mp3", "Artist", "First");
+        Song three = song("music/b/3.mp3", "Other", "Second");
+        index.put(one);
+        index.put(two);
+        index.put(three);
+        int version = index.getVersion();
+
+        Song retagged = song("music/a/2.mp3", "Artist", "Second");
+        index.put(retagged);
+        assertThat(index.getVersion(), is(not(version)));
+        assertThat(names(index.getAlbums("Artist")), contains("First (1)", "Second (1)"));
+        assertThat(index.getSongs(null, "Second"), contains(retagged, three));
+
+        index.remove(new File("music/a"));
+        assertThat(names(index.getArtists()), contains("Other (1)"));
+        assertThat(names(index.getAlbums()), contains("Second (1)"));
+        assertThat(index.size(), is(1));
+
+        index.clear();
+        assertThat(index.getArtists(), is(empty()));
+        assertThat(index.getSongs(null, null), is(empty()));
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.sudicode.tunejar.library;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongFactory;
+import com.sudicode.tunejar.song.Track;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link LibraryIndex} class.
+ */
+public class LibraryIndexTest {
+
+    private final File mp3File = new File("src/test/resources/mp3/AfterDark.mp3");
+    private final File mp4File = new File("src/test/resources/mp4/CrunkKnight.m4a");
+
+    private final LibraryIndex index = new LibraryIndex();
+    private final AtomicInteger parsed = new AtomicInteger();
+
+    private Song parse(File file) {
+        parsed.incrementAndGet();
+        return SongFactory.create(file);
+    }
+
+    /**
+     * Files in the library should be resolved without parsing.
+     */
+    @Test
+    public void testResolveLibrarySong() {
+        Song song = SongFactory.create(mp3File);
+        index.put(song);
+        assertThat(index.resolve(new File(mp3File.getAbsolutePath()), this::parse), is(sameInstance(song)));
+        assertThat(parsed.get(), is(0));
+    }
+
+    /**
+     * Files outside of the library should be parsed once, no matter how often they are resolved.
+     */
+    @Test
+    public void testResolveExternalSong() {
+        Song song = index.resolve(mp4File, this::parse);
+        assertThat(song.getTitle(), is("Crunk Knight"));
+        assertThat(index.resolve(mp4File, this::parse), is(sameInstance(song)));
+        assertThat(parsed.get(), is(1));
+        assertThat(index.get(mp4File), is(nullValue()));
+    }
+
+    /**
+     * Removing a directory should remove every song within it.
+     */
+    @Test
+    public void testRemoveDirectory() {
+        index.put(SongFactory.create(mp3File));
+        index.put(SongFactory.create(mp4File));
+        index.remove(new File("src/test/resources/mp3"));
+        assertThat(index.get(mp3File), is(nullValue()));
+        assertThat(index.get(mp4File), is(notNullValue()));
+        assertThat(index.size(), is(1));
+        assertThat(index.getBrowseIndex().size(), is(1));
+    }
+
+    /**
+     * Removing a file outside of the library should forget it, so it is parsed again the next time it is resolved.
+     */
+    @Test
+    public void testRemoveExternalSong() {
+        index.resolve(mp4File, this::parse);
+        index.remove(new File("src/test/resources/mp4"));
+        assertThat(index.search("Crunk Knight"), is(empty()));
+        index.resolve(mp4File, this::parse);
+        assertThat(parsed.get(), is(2));
+    }
+
+    /**
+     * Retagging a copy of a song should update the indexed song, so that lookups return the new tags.
+     */
+    @Test
+    public void testReindexCopy() {
+        Song song = SongFactory.create(mp3File);
+        index.put(song);
+        Song copy = new Song(new Track(mp3File, "New Title", song.getArtist(), "New Album")) {
+            @Override
+            protected File getAudioFile() {
+                return getTrack().getFile();
+            }
+        };
+        index.reindex(copy);
+
+        assertThat(index.get(mp3File), is(sameInstance(song)));
+        assertThat(song.getTitle(), is("New Title"));
+        assertThat(index.search("new title"), contains(mp3File.getAbsolutePath()));
+        assertThat(index.getBrowseIndex().getSongs(null, "New Album"), contains(song));
+    }
+
+    /**
+     * An adopted copy of a song should be returned in place of the indexed song.
+     */
+    @Test
+    public void testAdopt() {
+        Song song = SongFactory.create(mp3File);
+        index.put(song);
+        Song copy = SongFactory.duplicate(song);
+        index.adopt(copy);
+        index.adopt(SongFactory.create(mp4File));
+
+        assertThat(index.get(mp3File), is(sameInstance(copy)));
+        assertThat(index.getBrowseIndex().getSongs(song.getArtist(), null), contains(sameInstance(copy)));
+        assertThat(index.get(mp4File), is(nullValue()));
+        assertThat(index.size(), is(1));
+    }
+
+    /**
+     * Only songs in the library should be browsable.
+     */
+    @Test
+    public void testBrowse() {
+        Song song = SongFactory.create(mp3File);
+        index.put(song);
+        index.resolve(mp4File, this::parse);
+        assertThat(index.getBrowseIndex().getSongs(song.getArtist(), null), contains(song));
+        assertThat(index.getBrowseIndex().size(), is(1));
+
+        index.clear();
+        assertThat(index.getBrowseIndex().getArtists(), is(empty()));
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.sudicode.tunejar.library;
+
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static com.jayway.awaitility.Duration.TEN_SECONDS;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit test for the {@link LibraryWatcher} class.
+ */
+public class LibraryWatcherTest {
+
+    private final File mp3File = new File("src/test/resources/mp3/AfterDark.mp3");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Set<File> updated = ConcurrentHashMap.newKeySet();
+    private final Set<File> removed = ConcurrentHashMap.newKeySet();
+    private LibraryWatcher watcher;
+
+    private final LibraryWatcher.Listener listener = new LibraryWatcher.Listener() {
+        @Override
+        public void update(File file) {
+            updated.add(file.getAbsoluteFile());
+        }
+
+        @Override
+        public void remove(File file) {
+            removed.add(file.getAbsoluteFile());
+        }
+
+        @Override
+        public void overflow(File directory) {
+        }
+    };
+
+    @After
+    public void tearDown() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Files created in a watched directory, including in new subdirectories, should be reported, and so should their
+     * deletion.
+     */
+    @Test
+    public void testWatchService() throws Exception {
+        watcher = new LibraryWatcher(listener, FileSystems.getDefault().newWatchService(), 100, 100);
+        testCreateAndDelete();
+    }
+
+    /**
+     * The polling fallback should report the same changes as the {@link java.nio.file.WatchService}.
+     */
+    @Test
+    public void testPolling() throws Exception {
+        watcher = new LibraryWatcher(listener, null, 100, 100);
+        testCreateAndDelete();
+    }
+
+    private void testCreateAndDelete() throws Exception {
+        File root = folder.getRoot();
+        watcher.watch(root);
+        Thread.sleep(500); // Allow the registration to complete
+
+        File album = new File(root, "Album");
+        File song = new File(album, "AfterDark.mp3");
+        File notSong = new File(album, "cover.jpg");
+        Files.createParentDirs(song);
+        Files.copy(mp3File, song);
+        Files.write(new byte[]{1}, notSong);
+        await().atMost(TEN_SECONDS).until(() -> updated, contains(song.getAbsoluteFile()));
+
+        Files.copy(mp3File, song);
+        song.delete();
+        await().atMost(TEN_SECONDS).until(() -> removed, hasItem(song.getAbsoluteFile()));
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.sudicode.tunejar.library;
+
+import com.google.common.collect.ImmutableList;
+import com.sudicode.tunejar.song.Playlist;
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link PlaylistIndex} class.
+ */
+public class PlaylistIndexTest {
+
+    private final File mp3File = new File("src/test/resources/mp3/AfterDark.mp3");
+    private final File mp4File = new File("src/test/resources/mp4/CrunkKnight.m4a");
+    private final File wavFile = new File("src/test/resources/wav/Cute.wav");
+
+    private final LibraryIndex libraryIndex = new LibraryIndex();
+    private final PlaylistIndex index = new PlaylistIndex(libraryIndex);
+
+    private Song mp3Song;
+    private Song mp4Song;
+    private Song wavSong;
+    private Playlist master;
+
+    @Before
+    public void setUp() {
+        mp3Song = SongFactory.create(mp3File);
+        mp4Song = SongFactory.create(mp4File);
+        wavSong = SongFactory.create(wavFile);
+        master = playlist("All Music", mp3Song, mp4Song, wavSong);
+        master.forEach(libraryIndex::put);
+    }
+
+    private static Playlist playlist(String name, Song... songs) {
+        Playlist playlist = new Playlist(name);
+        for (Song song : songs) {
+            playlist.add(song);
+        }
+        return playlist;
+    }
+
+    /**
+     * Matches should be grouped by playlist, in the order the playlists were given, and counted once per song.
+     */
+    @Test
+    public void testSearch() {
+        Playlist dark = playlist("Dark", mp3Song, wavSong, mp3Song);
+        Playlist knight = playlist("Knight", mp4Song);
+        Playlist empty = playlist("Empty");
+
+        Map<Playlist, List<String>> results = index.search("after", ImmutableList.of(knight, dark, empty, master));
+        assertThat(results.keySet(), contains(dark, master));
+        assertThat(results.get(dark), contains(mp3File.getAbsolutePath()));
+
+        results = index.search("k", ImmutableList.of(master, dark, knight, empty));
+        assertThat(results.keySet(), contains(master, knight));
+        assertThat(results.get(master), contains(mp4File.getAbsolutePath()));
+
+        assertThat(index.search("nothing", ImmutableList.of(master, dark, knight, empty)).keySet(), is(empty()));
+    }
+
+    /**
+     * Changes to a playlist should be picked up by the next search, and removed playlists forgotten.
+     */
+    @Test
+    public void testChanges() {
+        Playlist dark = playlist("Dark", mp3Song);
+        Playlist knight = playlist("Knight", mp4Song);
+        List<Playlist> playlists = new ArrayList<>(ImmutableList.of(master, dark, knight));
+        assertThat(index.search("after", playlists).keySet(), contains(master, dark));
+
+        knight.add(mp3Song);
+        dark.removeIf(song -> song.getAbsoluteFilename().equals(mp3File.getAbsolutePath()));
+        assertThat(index.search("after", playlists).keySet(), contains(master, knight));
+
+        playlists.remove(knight);
+        assertThat(index.search("after", playlists).keySet(), contains(master));
+        assertThat(index.search("crunk", playlists).keySet(), contains(master));
+
+        knight.clear();
+        playlists.add(knight);
+        assertThat(index.search("crunk", playlists).keySet(), contains(master));
+    }
+
+}
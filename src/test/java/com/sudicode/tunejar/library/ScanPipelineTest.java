@@ -0,0 +1,62 @@
+package com.sudicode.tunejar.library;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongFactory;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link ScanPipeline} class.
+ */
+public class ScanPipelineTest {
+
+    private final File directory = new File("src/test/resources/");
+
+    /**
+     * Every supported file should be parsed exactly once, even if the queues are much smaller than the number of files.
+     */
+    @Test
+    public void testScan() throws Exception {
+        List<Song> songs = new ArrayList<>();
+        try (ScanPipeline pipeline = new ScanPipeline(Collections.singleton(directory), SongFactory::create, 2, 1)) {
+            pipeline.start();
+            while (!pipeline.isDone()) {
+                Song song = pipeline.poll(100, TimeUnit.MILLISECONDS);
+                if (song != null) {
+                    songs.add(song);
+                }
+            }
+            assertThat(pipeline.getFound(), is(3));
+            assertThat(pipeline.getFailed(), is(0));
+        }
+
+        List<String> titles = songs.stream().map(Song::getTitle).collect(Collectors.toList());
+        assertThat(titles, containsInAnyOrder("After Dark", "Crunk Knight", "Cute.wav"));
+    }
+
+    /**
+     * Files which cannot be parsed should be counted and skipped.
+     */
+    @Test
+    public void testParseFailure() throws Exception {
+        try (ScanPipeline pipeline = new ScanPipeline(Collections.singleton(directory), file -> {
+            throw new IllegalArgumentException();
+        }, 1, 1)) {
+            pipeline.start();
+            while (!pipeline.isDone()) {
+                assertThat(pipeline.poll(100, TimeUnit.MILLISECONDS), is(nullValue()));
+            }
+            assertThat(pipeline.getFailed(), is(3));
+        }
+    }
+
+}
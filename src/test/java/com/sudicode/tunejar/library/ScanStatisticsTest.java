@@ -0,0 +1,122 @@
+package com.sudicode.tunejar.library;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongCache;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.nio.file.Files;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link ScanStatistics} class.
+ */
+public class ScanStatisticsTest {
+
+    private final File directory = new File("src/test/resources/");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Scans the test resources, looking up each file in a cache.
+     */
+    private void scan(SongCache cache, ScanStatistics statistics) throws Exception {
+        try (ScanPipeline pipeline = new ScanPipeline(Collections.singleton(directory), cache::get, 2, 1,
+                statistics)) {
+            pipeline.start();
+            while (!pipeline.isDone()) {
+                Song song = pipeline.poll(100, TimeUnit.MILLISECONDS);
+                if (song != null) {
+                    statistics.batchPublished(1000);
+                }
+            }
+        }
+    }
+
+    /**
+     * A scan should record every discovered file, and the parse time of each file under its song type.
+     */
+    @Test
+    public void testScan() throws Exception {
+        ScanStatistics statistics = new ScanStatistics();
+        scan(new SongCache(new File(folder.getRoot(), "songs.cache"), statistics), statistics);
+
+        assertThat(statistics.getFilesDiscovered(), is(3L));
+        assertThat(statistics.getCacheHits(), is(0L));
+        assertThat(statistics.getParseFailures(), is(0L));
+        assertThat(statistics.getParseLatencyHistogram().keySet(), contains("Mp3Song", "Mp4Song", "WavSong"));
+        for (long[] counts : statistics.getParseLatencyHistogram().values()) {
+            assertThat(counts.length, is(statistics.getParseLatencyBucketsMillis().length + 1));
+            assertThat(Arrays.stream(counts).sum(), is(1L));
+        }
+        assertThat(statistics.getPeakFileQueueDepth(), is(1));
+        assertThat(statistics.getPublishedBatches(), is(3L));
+        assertThat(statistics.summary(), containsString("3 files"));
+
+        statistics.reset();
+        assertThat(statistics.getFilesDiscovered(), is(0L));
+        assertThat(statistics.getParseLatencyHistogram().isEmpty(), is(true));
+    }
+
+    /**
+     * Songs constructed from the cache should be counted as cache hits, without a parse time.
+     */
+    @Test
+    public void testCacheHits() throws Exception {
+        ScanStatistics statistics = new ScanStatistics();
+        SongCache cache = new SongCache(new File(folder.getRoot(), "songs.cache"), statistics);
+        scan(cache, statistics);
+        statistics.reset();
+        scan(cache, statistics);
+
+        assertThat(statistics.getFilesDiscovered(), is(3L));
+        assertThat(statistics.getCacheHits(), is(3L));
+        assertThat(statistics.getParseLatencyHistogram().isEmpty(), is(true));
+        assertThat(statistics.summary(), containsString("3 cached"));
+    }
+
+    /**
+     * A file which cannot be parsed should be counted as a failure, even though it is still given a song.
+     */
+    @Test
+    public void testParseFailure() throws Exception {
+        File corrupt = folder.newFile("Corrupt.m4a");
+        Files.write(corrupt.toPath(), new byte[]{0, 0, 0, 8, 'j', 'u', 'n', 'k'});
+
+        ScanStatistics statistics = new ScanStatistics();
+        SongCache cache = new SongCache(new File(folder.getRoot(), "songs.cache"), statistics);
+        assertThat(cache.get(corrupt), is(notNullValue()));
+        assertThat(statistics.getParseFailures(), is(1L));
+        assertThat(statistics.getParseLatencyHistogram().isEmpty(), is(true));
+    }
+
+    /**
+     * Registered statistics should be readable through the platform MBean server.
+     */
+    @Test
+    public void testRegister() throws Exception {
+        ScanStatistics statistics = new ScanStatistics();
+        statistics.register();
+        statistics.parseFailed(directory);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(ScanStatistics.OBJECT_NAME);
+        assertThat(server.getAttribute(name, "ParseFailures"), is(1L));
+
+        new ScanStatistics().register();
+        assertThat(server.getAttribute(name, "ParseFailures"), is(0L));
+        server.unregisterMBean(name);
+    }
+
+}
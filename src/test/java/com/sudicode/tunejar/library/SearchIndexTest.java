@@ -0,0 +1,152 @@
+package com.sudicode.tunejar.library;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.Track;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link SearchIndex} class.
+ */
+public class SearchIndexTest {
+
+    private final SearchIndex index = new SearchIndex();
+
+    /**
+     * @return A song which is not backed by a real file.
+     */
+    private static Song song(String path, String songTitle, String songArtist, String songAlbum) {
+        return new Song(new Track(new File(path), songTitle, songArtist, songAlbum)) {
+            @Override
+            protected File getAudioFile() {
+                return getTrack().getFile();
+            }
+        };
+    }
+
+    private static String path(String name) {
+        return new File(name).getAbsolutePath();
+    }
+
+    /**
+     * Text should be split into lowercase words.
+     */
+    @Test
+    public void testTokenize() {
+        assertThat(SearchIndex.tokenize("Don't Stop (Live) - 2011"), contains("don", "t", "stop", "live", "2011"));
+        assertThat(SearchIndex.tokenize(" -- "), is(empty()));
+    }
+
+    /**
+     * Case and accents should not matter, in the query or in the songs.
+     */
+    @Test
+    public void testAccents() {
+        index.put(song("a.mp3", "Halo", "Beyonc\u00E9", "I Am... Sasha Fierce"));
+        index.put(song("b.mp3", "Ace of Spades", "MOTORHEAD", "Ace of Spades"));
+
+        assertThat(index.search("beyonce"), contains(path("a.mp3")));
+        assertThat(index.search("BEYONC\u00C9"), contains(path("a.mp3")));
+        assertThat(index.search("mot\u00F6rhead"), contains(path("b.mp3")));
+    }
+
+    /**
+     * Matches in the title should rank above matches in the artist or album, and whole words above prefixes.
+     */
+    @Test
+    public void testRanking() {
+        index.put(song("album.mp3", "Song", "Someone", "Night Music"));
+        index.put(song("artist.mp3", "Song", "Night Crew", "Album"));
+        index.put(song("prefix.mp3", "Nightfall", "Someone", "Album"));
+        index.put(song("title.mp3", "Night", "Someone", "Album"));
+        index.put(song("none.mp3", "Day", "Someone", "Album"));
+
+        assertThat(index.search("NIGHT"), contains(path("title.mp3"), path("prefix.mp3"), path("artist.mp3"),
+                path("album.mp3")));
+        assertThat(index.search("nigh"), hasSize(4));
+        assertThat(index.search("ight"), is(empty()));
+        assertThat(index.search("  "), is(empty()));
+    }
+
+    /**
+     * Every word of a query should match, in any field.
+     */
+    @Test
+    public void testMultipleWords() {
+        index.put(song("a.mp3", "After Dark", "Machinimasound", "Machinimasound 2011"));
+        index.put(song("b.mp3", "After Hours", "Someone", "Album"));
+
+        assertThat(index.search("after machin"), contains(path("a.mp3")));
+        assertThat(index.search("machin after"), contains(path("a.mp3")));
+        assertThat(index.search("after"), hasSize(2));
+        assertThat(index.search("after nothing"), is(empty()));
+    }
+
+    /**
+     * Field filters, phrases and exclusions should narrow the results.
+     */
+    @Test
+    public void testQuerySyntax() {
+        index.put(song("one.mp3", "One More Time", "Daft Punk", "Discovery"));
+        index.put(song("live.mp3", "One More Time (Live)", "Daft Punk", "Alive 2007"));
+        index.put(song("punk.mp3", "Daft", "Punk Band", "Discovery"));
+        index.put(song("other.mp3", "Around the World", "Daft Punk", "Homework"));
+
+        assertThat(index.search("daft punk"), containsInAnyOrder(path("one.mp3"), path("live.mp3"),
+                path("punk.mp3"), path("other.mp3")));
+        assertThat(index.search("\"daft punk\""), containsInAnyOrder(path("one.mp3"), path("live.mp3"),
+                path("other.mp3")));
+        assertThat(index.search("artist:\"daft punk\" album:discovery"), contains(path("one.mp3")));
+        assertThat(index.search("artist:daft -live"), containsInAnyOrder(path("one.mp3"), path("other.mp3")));
+        assertThat(index.search("title:daft"), contains(path("punk.mp3")));
+        assertThat(index.search("\"one more\""), containsInAnyOrder(path("one.mp3"), path("live.mp3")));
+        assertThat(index.search("\"one mo\""), is(empty()));
+        assertThat(index.search("\"one mo*\""), containsInAnyOrder(path("one.mp3"), path("live.mp3")));
+        assertThat(index.search("\"disc\""), is(empty()));
+        assertThat(index.search("-punk"), is(empty()));
+        assertThat(index.search("-discovery -alive"), contains(path("other.mp3")));
+    }
+
+    /**
+     * Untitled songs should be found by their file name.
+     */
+    @Test
+    public void testUntitled() {
+        index.put(song("Untitled Track.mp3", "", "", ""));
+        assertThat(index.search("untitled"), contains(path("Untitled Track.mp3")));
+    }
+
+    /**
+     * Retagged and removed songs should be reflected in the results.
+     */
+    @Test
+    public void testUpdates() {
+        index.put(song("music/a.mp3", "Old Title", "Artist", "Album"));
+        index.put(song("music/sub/b.mp3", "Other", "Artist", "Album"));
+        index.put(song("c.mp3", "Third", "Artist", "Album"));
+
+        index.put(song("music/a.mp3", "New Title", "Artist", "Album"));
+        assertThat(index.search("old"), is(empty()));
+        assertThat(index.search("new"), contains(path("music/a.mp3")));
+        assertThat(index.size(), is(3));
+
+        index.remove(new File("music"));
+        assertThat(index.search("artist"), contains(path("c.mp3")));
+        assertThat(index.size(), is(1));
+
+        index.put(song("d.mp3", "Fourth", "Artist", "Album"));
+        assertThat(index.search("artist"), containsInAnyOrder(path("c.mp3"), path("d.mp3")));
+        index.remove(new File("c.mp3"));
+        assertThat(index.search("artist"), contains(path("d.mp3")));
+        index.put(song("c.mp3", "Third", "Artist", "Album"));
+
+        index.clear();
+        assertThat(index.search("artist"), is(empty()));
+        assertThat(index.size(), is(0));
+    }
+
+}
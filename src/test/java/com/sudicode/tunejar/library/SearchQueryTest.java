@@ -0,0 +1,93 @@
+package com.sudicode.tunejar.library;
+
+import com.sudicode.tunejar.song.Song;
+import com.sudicode.tunejar.song.SongFactory;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link SearchQuery} class.
+ */
+public class SearchQueryTest {
+
+    private static List<SearchQuery.Clause> parse(String query) {
+        return SearchQuery.parse(query).getClauses();
+    }
+
+    /**
+     * Plain words should match any field, by prefix.
+     */
+    @Test
+    public void testWords() {
+        List<SearchQuery.Clause> clauses = parse("  Daft  punk ");
+        assertThat(clauses, hasSize(2));
+        assertThat(clauses.get(0).getWords(), contains("daft"));
+        assertThat(clauses.get(0).getFields(), is(SearchQuery.ANY));
+        assertThat(clauses.get(0).isPrefix(), is(true));
+        assertThat(clauses.get(0).isNegated(), is(false));
+        assertThat(clauses.get(1).getWords(), contains("punk"));
+    }
+
+    /**
+     * Fields, phrases, exclusions and wildcards should be recognized.
+     */
+    @Test
+    public void testSyntax() {
+        List<SearchQuery.Clause> clauses = parse("artist:\"Daft Punk\" ALBUM:discovery -live -title:\"one mo*\"");
+        assertThat(clauses, hasSize(4));
+
+        assertThat(clauses.get(0).getWords(), contains("daft", "punk"));
+        assertThat(clauses.get(0).getFields(), is(SearchQuery.ARTIST));
+        assertThat(clauses.get(0).isPrefix(), is(false));
+        assertThat(clauses.get(0).isPhrase(), is(true));
+
+        assertThat(clauses.get(1).getWords(), contains("discovery"));
+        assertThat(clauses.get(1).getFields(), is(SearchQuery.ALBUM));
+
+        assertThat(clauses.get(2).getWords(), contains("live"));
+        assertThat(clauses.get(2).isNegated(), is(true));
+
+        assertThat(clauses.get(3).getWords(), contains("one", "mo"));
+        assertThat(clauses.get(3).getFields(), is(SearchQuery.TITLE));
+        assertThat(clauses.get(3).isPrefix(), is(true));
+        assertThat(clauses.get(3).isNegated(), is(true));
+    }
+
+    /**
+     * Text which is not part of the syntax should be searched for instead of failing.
+     */
+    @Test
+    public void testLenient() {
+        List<SearchQuery.Clause> clauses = parse("genre:rock AC/DC");
+        assertThat(clauses, hasSize(2));
+        assertThat(clauses.get(0).getWords(), contains("genre", "rock"));
+        assertThat(clauses.get(0).getFields(), is(SearchQuery.ANY));
+        assertThat(clauses.get(1).getWords(), contains("ac", "dc"));
+        assertThat(clauses.get(1).isPhrase(), is(true));
+
+        clauses = parse("\"unclosed phrase - AC/DC");
+        assertThat(clauses, hasSize(1));
+        assertThat(clauses.get(0).getWords(), contains("unclosed", "phrase", "ac", "dc"));
+
+        assertThat(SearchQuery.parse(" - \"\" artist: ").isEmpty(), is(true));
+    }
+
+    /**
+     * A clause should test whether its words appear next to each other in one of its fields.
+     */
+    @Test
+    public void testPredicate() {
+        Song song = SongFactory.create(new File("src/test/resources/mp3/AfterDark.mp3"));
+        assertThat(parse("\"after dark\"").get(0).test(song.getTrack()), is(true));
+        assertThat(parse("\"dark after\"").get(0).test(song.getTrack()), is(false));
+        assertThat(parse("title:\"after da*\"").get(0).test(song.getTrack()), is(true));
+        assertThat(parse("artist:\"after dark\"").get(0).test(song.getTrack()), is(false));
+        assertThat(parse("album:\"machinimasound 2011\"").get(0).test(song.getTrack()), is(true));
+    }
+
+}
@@ -50,6 +50,7 @@ public class Gui {
             Options options = new Options(Defaults.PREFERENCES_NODE);
             options.setDirectories(new LinkedHashSet<>(Collections.singleton(resourceFolder)));
             options.setPlaylists(new LinkedHashMap<>());
+            options.flush();
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
         }
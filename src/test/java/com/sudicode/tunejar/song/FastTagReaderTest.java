@@ -0,0 +1,109 @@
+package com.sudicode.tunejar.song;
+
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.audio.mp3.MP3File;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.id3.ID3v24Frames;
+import org.jaudiotagger.tag.id3.ID3v24Tag;
+import org.jaudiotagger.tag.mp4.Mp4FieldKey;
+import org.jaudiotagger.tag.mp4.Mp4Tag;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link FastTagReader} class.
+ */
+public class FastTagReaderTest {
+
+    private final File mp3File = new File("src/test/resources/mp3/AfterDark.mp3");
+    private final File mp4File = new File("src/test/resources/mp4/CrunkKnight.m4a");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The fields of an ID3v2 tag should match what JAudioTagger reads.
+     */
+    @Test
+    public void testReadMp3() throws Exception {
+        Map<FieldKey, String> fields = FastTagReader.readMp3(mp3File);
+        ID3v24Tag tag = ((MP3File) AudioFileIO.read(mp3File)).getID3v2TagAsv24();
+        assertThat(fields.get(FieldKey.TITLE), is(tag.getFirst(ID3v24Frames.FRAME_ID_TITLE)));
+        assertThat(fields.get(FieldKey.ARTIST), is(tag.getFirst(ID3v24Frames.FRAME_ID_ARTIST)));
+        assertThat(fields.get(FieldKey.ALBUM), is(tag.getFirst(ID3v24Frames.FRAME_ID_ALBUM)));
+    }
+
+    /**
+     * The fields of an ID3v1 tag should be read when there is no ID3v2 tag.
+     */
+    @Test
+    public void testReadMp3Id3v1() throws Exception {
+        byte[] data = new byte[1024];
+        byte[] trailer = new byte[128];
+        System.arraycopy("TAG".getBytes(StandardCharsets.ISO_8859_1), 0, trailer, 0, 3);
+        putId3v1Field(trailer, 3, "Title");
+        putId3v1Field(trailer, 33, "Artist");
+        putId3v1Field(trailer, 63, "Album");
+        System.arraycopy(trailer, 0, data, data.length - trailer.length, trailer.length);
+        File file = folder.newFile("id3v1.mp3");
+        Files.write(file.toPath(), data);
+
+        Map<FieldKey, String> fields = FastTagReader.readMp3(file);
+        assertThat(fields.get(FieldKey.TITLE), is("Title"));
+        assertThat(fields.get(FieldKey.ARTIST), is("Artist"));
+        assertThat(fields.get(FieldKey.ALBUM), is("Album"));
+    }
+
+    /**
+     * A file without any tag should have blank fields.
+     */
+    @Test
+    public void testReadMp3Untagged() throws Exception {
+        File file = folder.newFile("untagged.mp3");
+        Files.write(file.toPath(), new byte[1024]);
+
+        Map<FieldKey, String> fields = FastTagReader.readMp3(file);
+        assertThat(fields.values(), everyItem(isEmptyString()));
+    }
+
+    /**
+     * The fields of the iTunes metadata should match what JAudioTagger reads.
+     */
+    @Test
+    public void testReadMp4() throws Exception {
+        Map<FieldKey, String> fields = FastTagReader.readMp4(mp4File);
+        Mp4Tag tag = (Mp4Tag) AudioFileIO.read(mp4File).getTag();
+        assertThat(fields.get(FieldKey.TITLE), is(tag.getFirst(Mp4FieldKey.TITLE)));
+        assertThat(fields.get(FieldKey.ARTIST), is(tag.getFirst(Mp4FieldKey.ARTIST)));
+        assertThat(fields.get(FieldKey.ALBUM), is(tag.getFirst(Mp4FieldKey.ALBUM)));
+    }
+
+    /**
+     * A file which is not an MP4 file should be rejected, so that the caller can fall back to JAudioTagger.
+     */
+    @Test(expected = IOException.class)
+    public void testReadMp4Invalid() throws Exception {
+        byte[] data = new byte[64];
+        Arrays.fill(data, (byte) 0x7F);
+        File file = folder.newFile("invalid.m4a");
+        Files.write(file.toPath(), data);
+        FastTagReader.readMp4(file);
+    }
+
+    private static void putId3v1Field(final byte[] trailer, final int offset, final String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(bytes, 0, trailer, offset, bytes.length);
+    }
+
+}
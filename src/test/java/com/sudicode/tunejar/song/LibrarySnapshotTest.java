@@ -0,0 +1,86 @@
+package com.sudicode.tunejar.song;
+
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link LibrarySnapshot} class.
+ */
+public class LibrarySnapshotTest {
+
+    private final File mp3File = new File("src/test/resources/mp3/AfterDark.mp3");
+    private final File mp4File = new File("src/test/resources/mp4/CrunkKnight.m4a");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File snapshotFile;
+
+    @Before
+    public void setUp() {
+        snapshotFile = new File(folder.getRoot(), "library.snapshot");
+    }
+
+    /**
+     * Songs should be read back in order, with the same type and tags.
+     */
+    @Test
+    public void testWriteAndRead() {
+        List<Song> songs = Arrays.asList(SongFactory.create(mp3File), SongFactory.create(mp4File),
+                SongFactory.create(new Track(new File("\u00E9t\u00E9.mp3"), "\u00C9t\u00E9", "Artist", "Album")));
+        new LibrarySnapshot(snapshotFile).write(songs);
+
+        List<Song> read = new LibrarySnapshot(snapshotFile).read();
+        assertThat(read, hasSize(3));
+        for (int i = 0; i < songs.size(); i++) {
+            assertThat(read.get(i).getClass(), is(equalTo(songs.get(i).getClass())));
+            assertThat(read.get(i).getAbsoluteFilename(), is(equalTo(songs.get(i).getAbsoluteFilename())));
+            assertThat(read.get(i).getTitle(), is(equalTo(songs.get(i).getTitle())));
+            assertThat(read.get(i).getArtist(), is(equalTo(songs.get(i).getArtist())));
+            assertThat(read.get(i).getAlbum(), is(equalTo(songs.get(i).getAlbum())));
+        }
+    }
+
+    /**
+     * A snapshot which has been read should be replaceable straight away, as happens after every refresh.
+     */
+    @Test
+    public void testReadThenWrite() {
+        LibrarySnapshot snapshot = new LibrarySnapshot(snapshotFile);
+        snapshot.write(Arrays.asList(SongFactory.create(mp3File)));
+        assertThat(snapshot.read(), hasSize(1));
+
+        snapshot.write(Arrays.asList(SongFactory.create(mp3File), SongFactory.create(mp4File)));
+        List<Song> read = snapshot.read();
+        assertThat(read, hasSize(2));
+        assertThat(read.get(1).getAbsoluteFilename(), is(mp4File.getAbsolutePath()));
+        assertThat(new File(snapshotFile.getPath() + ".tmp").exists(), is(false));
+    }
+
+    /**
+     * A missing or corrupt snapshot should result in an empty library.
+     */
+    @Test
+    public void testMissingOrCorrupt() throws Exception {
+        assertThat(new LibrarySnapshot(snapshotFile).read(), is(empty()));
+
+        new LibrarySnapshot(snapshotFile).write(Arrays.asList(SongFactory.create(mp3File)));
+        byte[] bytes = Files.toByteArray(snapshotFile);
+        Files.write(Arrays.copyOf(bytes, bytes.length - 4), snapshotFile);
+        assertThat(new LibrarySnapshot(snapshotFile).read(), is(empty()));
+
+        Files.write(new byte[] {1, 2, 3}, snapshotFile);
+        assertThat(new LibrarySnapshot(snapshotFile).read(), is(empty()));
+    }
+
+}
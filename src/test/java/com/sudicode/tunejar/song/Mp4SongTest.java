@@ -2,10 +2,13 @@ package com.sudicode.tunejar.song;
 
 import com.sudicode.tunejar.TuneJarException;
 import org.apache.commons.io.FilenameUtils;
+import org.jaudiotagger.tag.FieldKey;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.EnumMap;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -57,8 +60,8 @@ public class Mp4SongTest {
     public void testSetTitle() throws TuneJarException {
         try {
             mp4Song.setTitle("New Title");
-            assertEquals("New Title", mp4Song.title.get());
-            assertEquals("New Title", new Mp4Song(mp4Song).title.get());
+            assertEquals("New Title", mp4Song.titleProperty().get());
+            assertEquals("New Title", new Mp4Song(mp4Song).titleProperty().get());
         } finally {
             mp4Song.setTitle(TITLE);
         }
@@ -80,8 +83,8 @@ public class Mp4SongTest {
     public void testSetArtist() throws TuneJarException {
         try {
             mp4Song.setArtist("New Artist");
-            assertEquals("New Artist", mp4Song.artist.get());
-            assertEquals("New Artist", new Mp4Song(mp4Song).artist.get());
+            assertEquals("New Artist", mp4Song.artistProperty().get());
+            assertEquals("New Artist", new Mp4Song(mp4Song).artistProperty().get());
         } finally {
             mp4Song.setArtist(ARTIST);
         }
@@ -103,13 +106,41 @@ public class Mp4SongTest {
     public void testSetAlbum() throws TuneJarException {
         try {
             mp4Song.setAlbum("New Album");
-            assertEquals("New Album", mp4Song.album.get());
-            assertEquals("New Album", new Mp4Song(mp4Song).album.get());
+            assertEquals("New Album", mp4Song.albumProperty().get());
+            assertEquals("New Album", new Mp4Song(mp4Song).albumProperty().get());
         } finally {
             mp4Song.setAlbum(ALBUM);
         }
     }
 
+    /**
+     * Several fields should be set at once in both the {@link Mp4Song} object
+     * and the audio file.
+     */
+    @Test
+    public void testUpdate() throws TuneJarException {
+        Map<FieldKey, String> fields = new EnumMap<>(FieldKey.class);
+        fields.put(FieldKey.TITLE, "New Title");
+        fields.put(FieldKey.ARTIST, "New Artist");
+        fields.put(FieldKey.ALBUM, "New Album");
+        try {
+            mp4Song.update(fields);
+            assertEquals("New Title", mp4Song.titleProperty().get());
+            assertEquals("New Artist", mp4Song.artistProperty().get());
+            assertEquals("New Album", mp4Song.albumProperty().get());
+
+            Mp4Song parsed = new Mp4Song(new File(FILENAME));
+            assertEquals("New Title", parsed.getTitle());
+            assertEquals("New Artist", parsed.getArtist());
+            assertEquals("New Album", parsed.getAlbum());
+        } finally {
+            fields.put(FieldKey.TITLE, TITLE);
+            fields.put(FieldKey.ARTIST, ARTIST);
+            fields.put(FieldKey.ALBUM, ALBUM);
+            mp4Song.update(fields);
+        }
+    }
+
     /**
      * Test the getter for the album.
      */
@@ -0,0 +1,182 @@
+package com.sudicode.tunejar.song;
+
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link SongCache} class.
+ */
+public class SongCacheTest {
+
+    private final File mp3File = new File("src/test/resources/mp3/AfterDark.mp3");
+    private final File mp4File = new File("src/test/resources/mp4/CrunkKnight.m4a");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File cacheFile;
+
+    @Before
+    public void setUp() {
+        cacheFile = new File(folder.getRoot(), "songs.cache");
+    }
+
+    /**
+     * The first lookup of a file parses it, while the second one is served from the cache.
+     */
+    @Test
+    public void testHitAfterMiss() {
+        SongCache cache = new SongCache(cacheFile);
+        cache.load();
+
+        Song parsed = cache.get(mp3File);
+        assertThat(cache.getMisses(), is(1));
+        assertThat(cache.getHits(), is(0));
+
+        Song cached = cache.get(mp3File);
+        assertThat(cache.getMisses(), is(1));
+        assertThat(cache.getHits(), is(1));
+        assertThat(cached, is(instanceOf(Mp3Song.class)));
+        assertThat(cached.getTitle(), is(equalTo(parsed.getTitle())));
+        assertThat(cached.getArtist(), is(equalTo(parsed.getArtist())));
+        assertThat(cached.getAlbum(), is(equalTo(parsed.getAlbum())));
+        assertThat(cached.getAbsoluteFilename(), is(equalTo(parsed.getAbsoluteFilename())));
+    }
+
+    /**
+     * Saved entries should be available to a new cache instance.
+     */
+    @Test
+    public void testSaveAndLoad() {
+        SongCache cache = new SongCache(cacheFile);
+        cache.load();
+        cache.get(mp3File);
+        cache.get(mp4File);
+        cache.save();
+        assertTrue(cacheFile.isFile());
+
+        SongCache reloaded = new SongCache(cacheFile);
+        reloaded.load();
+        Song song = reloaded.get(mp4File);
+        assertThat(reloaded.getHits(), is(1));
+        assertThat(reloaded.getMisses(), is(0));
+        assertThat(song, is(instanceOf(Mp4Song.class)));
+        assertThat(song.getTitle(), is(equalTo("Crunk Knight")));
+    }
+
+    /**
+     * A checkpoint taken partway through a scan should keep the entries which have not been reached yet, while a save
+     * after a complete scan drops them.
+     */
+    @Test
+    public void testCheckpoint() {
+        SongCache cache = new SongCache(cacheFile);
+        cache.load();
+        cache.get(mp3File);
+        cache.get(mp4File);
+        cache.save();
+
+        SongCache interrupted = new SongCache(cacheFile);
+        interrupted.load();
+        interrupted.get(mp3File);
+        interrupted.checkpoint();
+
+        SongCache resumed = new SongCache(cacheFile);
+        resumed.load();
+        resumed.get(mp4File);
+        assertThat(resumed.getHits(), is(1));
+        resumed.save();
+
+        SongCache reloaded = new SongCache(cacheFile);
+        reloaded.load();
+        reloaded.get(mp3File);
+        assertThat(reloaded.getMisses(), is(1));
+    }
+
+    /**
+     * A file whose last-modified time changed must be parsed again.
+     */
+    @Test
+    public void testModifiedFileIsParsed() throws Exception {
+        File copy = folder.newFile("AfterDark.mp3");
+        Files.copy(mp3File, copy);
+
+        SongCache cache = new SongCache(cacheFile);
+        cache.load();
+        cache.get(copy);
+        assertTrue(copy.setLastModified(copy.lastModified() - 60000));
+        cache.get(copy);
+        assertThat(cache.getMisses(), is(2));
+        assertThat(cache.getHits(), is(0));
+    }
+
+    /**
+     * A file which cannot be parsed should be given empty metadata, but not be cached.
+     */
+    @Test
+    public void testUnparsableFileIsNotCached() throws Exception {
+        File corrupt = folder.newFile("Corrupt.m4a");
+        Files.write(new byte[]{0, 0, 0, 8, 'j', 'u', 'n', 'k', 1, 2, 3}, corrupt);
+
+        SongCache cache = new SongCache(cacheFile);
+        cache.load();
+        Song song = cache.get(corrupt);
+        assertThat(song, is(instanceOf(Mp4Song.class)));
+        assertThat(song.getTrack().getTitle(), isEmptyString());
+        cache.get(corrupt);
+        assertThat(cache.getMisses(), is(2));
+        assertThat(cache.getHits(), is(0));
+        cache.save();
+
+        SongCache reloaded = new SongCache(cacheFile);
+        reloaded.load();
+        reloaded.get(corrupt);
+        assertThat(reloaded.getMisses(), is(1));
+    }
+
+    /**
+     * A file which was used by one scan, but not by the next one, should be dropped when the next scan is saved.
+     */
+    @Test
+    public void testBeginScanDropsUnusedEntries() {
+        SongCache cache = new SongCache(cacheFile);
+        cache.load();
+        cache.beginScan();
+        cache.get(mp3File);
+        cache.get(mp4File);
+        cache.save();
+
+        cache.beginScan();
+        cache.get(mp4File);
+        cache.save();
+
+        SongCache reloaded = new SongCache(cacheFile);
+        reloaded.load();
+        reloaded.get(mp3File);
+        reloaded.get(mp4File);
+        assertThat(reloaded.getMisses(), is(1));
+        assertThat(reloaded.getHits(), is(1));
+    }
+
+    /**
+     * A corrupt cache file should be ignored rather than cause a failure.
+     */
+    @Test
+    public void testCorruptCacheIsIgnored() throws Exception {
+        Files.write(new byte[]{0, 0, 0, 1, 0, 0, 0, 5, 1}, cacheFile);
+
+        SongCache cache = new SongCache(cacheFile);
+        cache.load();
+        cache.get(mp3File);
+        assertThat(cache.getMisses(), is(1));
+    }
+
+}
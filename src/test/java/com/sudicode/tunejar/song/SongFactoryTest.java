@@ -1,7 +1,10 @@
 package com.sudicode.tunejar.song;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.util.List;
@@ -18,6 +21,9 @@ public class SongFactoryTest {
     private final File directory = new File("src/test/resources/");
     private final File nonSongFile = new File("src/test/resources/README.md");
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testCreate() {
         assertThat(SongFactory.create(mp3File), is(instanceOf(Mp3Song.class)));
@@ -48,13 +54,14 @@ public class SongFactoryTest {
             assertThat(song.getArtist(), is(equalTo(dupe.getArtist())));
             assertThat(song.getAlbum(), is(equalTo(dupe.getAlbum())));
             assertThat(song.getAbsoluteFilename(), is(equalTo(dupe.getAbsoluteFilename())));
+            assertThat(dupe.getTrack(), is(sameInstance(song.getTrack())));
         }
 
         try {
-            SongFactory.duplicate(new Song() {
+            SongFactory.duplicate(new Song(new Track(new File("unknown.mp3"), "", "", "")) {
                 @Override
                 protected File getAudioFile() {
-                    return null;
+                    return getTrack().getFile();
                 }
             });
             fail("Expected IllegalArgumentException");
@@ -62,4 +69,40 @@ public class SongFactoryTest {
         }
     }
 
+    /**
+     * A song should adopt the tags of another copy of its file, without writing to the file.
+     */
+    @Test
+    public void testUpdateFrom() {
+        Song song = SongFactory.create(mp3File);
+        long lastModified = mp3File.lastModified();
+        assertThat(song.updateFrom(SongFactory.duplicate(song)), is(false));
+
+        Song retagged = SongFactory.create(new Track(mp3File, "Title", "Artist", "Album"));
+        assertThat(song.updateFrom(retagged), is(true));
+        assertThat(song.getTitle(), is("Title"));
+        assertThat(song.getArtist(), is("Artist"));
+        assertThat(song.getAlbum(), is("Album"));
+        assertThat(song.getTrack(), is(sameInstance(retagged.getTrack())));
+        assertThat(mp3File.lastModified(), is(lastModified));
+    }
+
+    /**
+     * Duplicating a song must not read the audio file, so it should still work after the file is gone.
+     */
+    @Test
+    public void testDuplicateWithoutFile() throws Exception {
+        File copy = folder.newFile("AfterDark.mp3");
+        Files.copy(mp3File, copy);
+        Song song = SongFactory.create(copy);
+        assertTrue(copy.delete());
+
+        Playlist playlist = new Playlist("Playlist");
+        for (int i = 0; i < 5000; i++) {
+            playlist.add(song);
+        }
+        assertThat(playlist, everyItem(hasProperty("title", is("After Dark"))));
+        assertThat(playlist, everyItem(hasProperty("album", is("Machinimasound 2011"))));
+    }
+
 }
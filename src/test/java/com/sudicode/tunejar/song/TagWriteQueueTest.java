@@ -0,0 +1,164 @@
+package com.sudicode.tunejar.song;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.sudicode.tunejar.TuneJarException;
+import org.jaudiotagger.tag.FieldKey;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link TagWriteQueue} class.
+ */
+public class TagWriteQueueTest {
+
+    private final File mp3File = new File("src/test/resources/mp3/AfterDark.mp3");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Stands in for the GUI thread
+    private final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+
+    private final List<Song> failures = new ArrayList<>();
+    private TagWriteQueue queue;
+    private File copy;
+
+    @Before
+    public void setUp() throws Exception {
+        queue = new TagWriteQueue(2, callbacks::add, (song, e) -> failures.add(song));
+        copy = folder.newFile("AfterDark.mp3");
+        Files.copy(mp3File, copy);
+    }
+
+    /**
+     * Edits should be visible straight away, and written in the background.
+     */
+    @Test
+    public void testWrite() throws Exception {
+        Song song = SongFactory.create(copy);
+        CompletableFuture<Void> write = queue.submit(song, ImmutableMap.of(FieldKey.TITLE, "New Title"));
+        assertThat(song.getTitle(), is("New Title"));
+
+        write.get(5, TimeUnit.SECONDS);
+        assertThat(queue.drain(5, TimeUnit.SECONDS), is(true));
+        runCallbacks();
+        assertThat(new Mp3Song(copy).getTitle(), is("New Title"));
+        assertThat(queue.pendingProperty().get(), is(0));
+        assertThat(queue.failedProperty().get(), is(0));
+        assertThat(failures, is(empty()));
+    }
+
+    /**
+     * A write by the queue should be recognized once, unless another program changes the file first.
+     */
+    @Test
+    public void testOwnChange() throws Exception {
+        Song song = SongFactory.create(copy);
+        assertThat(queue.isOwnChange(copy), is(false));
+        queue.submit(song, ImmutableMap.of(FieldKey.TITLE, "New Title")).get(5, TimeUnit.SECONDS);
+        assertThat(queue.isOwnChange(new File(copy.getAbsolutePath())), is(true));
+        assertThat(queue.isOwnChange(copy), is(false));
+
+        queue.submit(song, ImmutableMap.of(FieldKey.TITLE, "Newer Title")).get(5, TimeUnit.SECONDS);
+        assertTrue(copy.setLastModified(copy.lastModified() - 60000));
+        assertThat(queue.isOwnChange(copy), is(false));
+    }
+
+    /**
+     * A failed write should roll back the edit and be reported.
+     */
+    @Test
+    public void testRollback() throws Exception {
+        Song song = SongFactory.create(new Track(new File(folder.getRoot(), "missing.mp3"), "Title", "Artist", ""));
+        CompletableFuture<Void> write = queue.submit(song, ImmutableMap.of(FieldKey.TITLE, "New Title",
+                FieldKey.ALBUM, "New Album"));
+        assertThat(song.getTitle(), is("New Title"));
+        assertThat(song.getAlbum(), is("New Album"));
+
+        try {
+            write.get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException expected) {
+            assertThat(expected.getCause(), is(instanceOf(TuneJarException.class)));
+        }
+        assertThat(queue.drain(5, TimeUnit.SECONDS), is(true));
+        runCallbacks();
+        assertThat(song.getTitle(), is("Title"));
+        assertThat(song.getArtist(), is("Artist"));
+        assertThat(song.getAlbum(), is(""));
+        assertThat(queue.failedProperty().get(), is(1));
+        assertThat(failures, contains(song));
+    }
+
+    /**
+     * Writes to the same file should be applied in the order they were submitted.
+     */
+    @Test
+    public void testOrdering() throws Exception {
+        Song song = SongFactory.create(copy);
+        for (int i = 1; i <= 20; i++) {
+            queue.submit(song, ImmutableMap.of(FieldKey.TITLE, "Title " + i));
+        }
+        assertThat(queue.drain(30, TimeUnit.SECONDS), is(true));
+        runCallbacks();
+        assertThat(song.getTitle(), is("Title 20"));
+        assertThat(new Mp3Song(copy).getTitle(), is("Title 20"));
+        assertThat(failures, is(empty()));
+    }
+
+    /**
+     * A bulk edit should only write the fields that differ, report progress, and summarize failures.
+     */
+    @Test
+    public void testSubmitAll() throws Exception {
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            File file = folder.newFile("song" + i + ".mp3");
+            Files.copy(mp3File, file);
+            songs.add(SongFactory.create(file));
+        }
+        Song missing = SongFactory.create(new Track(new File(folder.getRoot(), "missing.mp3"), "", "Artist", ""));
+        songs.add(missing);
+        long lastModified = songs.get(0).getTrack().getFile().lastModified();
+        songs.get(0).apply(ImmutableMap.of(FieldKey.ARTIST, "New Artist"));
+
+        List<Integer> progress = new ArrayList<>();
+        Map<Song, TuneJarException> failures = queue.submitAll(songs, ImmutableMap.of(FieldKey.ARTIST, "New Artist"),
+                progress::add).get(30, TimeUnit.SECONDS);
+        runCallbacks();
+        assertThat(failures.keySet(), contains(missing));
+        assertThat(missing.getArtist(), is("Artist"));
+        assertThat(progress, hasSize(songs.size()));
+        assertThat(progress, hasItem(songs.size()));
+        assertThat(songs.get(0).getTrack().getFile().lastModified(), is(lastModified));
+        for (Song song : songs.subList(1, 10)) {
+            assertThat(new Mp3Song(song.getTrack().getFile()).getArtist(), is("New Artist"));
+        }
+    }
+
+    /**
+     * Runs the callbacks handed to the GUI thread so far.
+     */
+    private void runCallbacks() {
+        for (Runnable callback = callbacks.poll(); callback != null; callback = callbacks.poll()) {
+            callback.run();
+        }
+    }
+
+}
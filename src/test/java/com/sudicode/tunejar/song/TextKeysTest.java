@@ -0,0 +1,59 @@
+package com.sudicode.tunejar.song;
+
+import org.jaudiotagger.tag.FieldKey;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link TextKeys} class.
+ */
+public class TextKeysTest {
+
+    /**
+     * Case, accents and compatibility characters should be folded away.
+     */
+    @Test
+    public void testFold() {
+        assertThat(TextKeys.fold("Beyonc\u00E9"), is("beyonce"));
+        assertThat(TextKeys.fold("BEYONCE"), is("beyonce"));
+        assertThat(TextKeys.fold("Sigur R\u00F3s"), is("sigur ros"));
+        assertThat(TextKeys.fold("Mot\u00F6rhead"), is("motorhead"));
+        assertThat(TextKeys.fold("Stra\u00DFe"), is("strasse"));
+        assertThat(TextKeys.fold("\uFB01ne"), is("fine"));
+        assertThat(TextKeys.fold("S\u00F8ren \u00C6sop"), is("soren aesop"));
+
+        String folded = "already folded";
+        assertThat(TextKeys.fold(folded), is(sameInstance(folded)));
+    }
+
+    /**
+     * Sort keys should ignore case, accents and a leading "The".
+     */
+    @Test
+    public void testSortKey() {
+        assertThat(TextKeys.sortKey("\u00C9clair").compareTo(TextKeys.sortKey("eclair")), is(0));
+        assertThat(TextKeys.sortKey("The Beatles").compareTo(TextKeys.sortKey("beatles")), is(0));
+        assertThat(TextKeys.sortKey("The Beatles").compareTo(TextKeys.sortKey("Abba")), is(greaterThan(0)));
+        assertThat(TextKeys.sortKey("\u00C9clair").compareTo(TextKeys.sortKey("Zebra")), is(lessThan(0)));
+        assertThat(TextKeys.sortKey("Theory").compareTo(TextKeys.sortKey("Abba")), is(greaterThan(0)));
+        assertThat(TextKeys.sortKey("The").compareTo(TextKeys.sortKey("the")), is(0));
+    }
+
+    /**
+     * Tracks should keep their keys, and untitled tracks should be keyed by their file name.
+     */
+    @Test
+    public void testTrackKeys() {
+        Track track = new Track(new File("Untitled.mp3"), "", "The Artist", "\u00C1lbum");
+        assertThat(track.getSearchKey(FieldKey.TITLE), is("untitled.mp3"));
+        assertThat(track.getSearchKey(FieldKey.ARTIST), is("the artist"));
+        assertThat(track.getSearchKey(FieldKey.ALBUM), is("album"));
+        assertThat(track.getSortKey(FieldKey.ARTIST), is(sameInstance(track.getSortKey(FieldKey.ARTIST))));
+        assertThat(track.getSortKey(FieldKey.ARTIST).getSourceString(), is("artist"));
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.sudicode.tunejar.song;
+
+import org.jaudiotagger.tag.FieldKey;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link TrackDictionary} class.
+ */
+public class TrackDictionaryTest {
+
+    /**
+     * Tracks should share their artist, album and directory with other tracks, but keep their own file.
+     */
+    @Test
+    public void testSharing() {
+        File directory = new File("/music/Artist/Album");
+        Track first = new Track(new File(directory, "1.mp3"), "One", new String("Artist"), new String("Album"));
+        Track second = new Track(new File(directory.getPath(), "2.mp3"), "Two", new String("Artist"),
+                new String("Album"));
+        assertThat(second.getArtist(), is(sameInstance(first.getArtist())));
+        assertThat(second.getAlbum(), is(sameInstance(first.getAlbum())));
+        assertThat(second.getSearchKey(FieldKey.ARTIST), is(sameInstance(first.getSearchKey(FieldKey.ARTIST))));
+        assertThat(first.getFile(), is(new File(directory, "1.mp3")));
+        assertThat(second.getFile(), is(new File(directory, "2.mp3")));
+        assertThat(new Track(new File("3.mp3"), "", "", "").getFile(), is(new File("3.mp3")));
+        assertThat(first.getAbsolutePath(), is(new File(directory, "1.mp3").getAbsolutePath()));
+        assertThat(first.getAbsolutePath(), is(sameInstance(first.getAbsolutePath())));
+
+        Track edited = first.withArtist(new String("Other"));
+        assertThat(edited.getArtist(), is(sameInstance(TrackDictionary.intern("Other"))));
+        assertThat(edited.getFile(), is(first.getFile()));
+    }
+
+}
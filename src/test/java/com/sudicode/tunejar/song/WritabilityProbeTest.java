@@ -0,0 +1,80 @@
+package com.sudicode.tunejar.song;
+
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the {@link WritabilityProbe} class.
+ */
+public class WritabilityProbeTest {
+
+    private final File mp3File = new File("src/test/resources/mp3/AfterDark.mp3");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File copy;
+
+    @Before
+    public void setUp() throws Exception {
+        copy = folder.newFile("AfterDark.mp3");
+        Files.copy(mp3File, copy);
+        copy.setLastModified(1000000000000L);
+    }
+
+    /**
+     * Probing a writable file must not modify it.
+     */
+    @Test
+    public void testWritable() {
+        assertThat(WritabilityProbe.canWrite(copy), is(true));
+        assertThat(copy.lastModified(), is(1000000000000L));
+        assertThat(copy.length(), is(mp3File.length()));
+        assertThat(new Mp3Song(copy).canEdit(), is(true));
+        assertThat(copy.lastModified(), is(1000000000000L));
+    }
+
+    /**
+     * Missing files, and files without a tag writer, cannot be written.
+     */
+    @Test
+    public void testUnsupported() throws Exception {
+        assertThat(WritabilityProbe.canWrite(new File(folder.getRoot(), "missing.mp3")), is(false));
+        assertThat(WritabilityProbe.canWrite(folder.newFolder("folder.mp3")), is(false));
+
+        File text = folder.newFile("AfterDark.txt");
+        Files.copy(mp3File, text);
+        assertThat(WritabilityProbe.canWrite(text), is(false));
+    }
+
+    /**
+     * The result should be cached until the file changes.
+     */
+    @Test
+    public void testCachedUntilModified() throws Exception {
+        assertThat(WritabilityProbe.canWrite(copy), is(true));
+        try (RandomAccessFile file = new RandomAccessFile(copy, "rw");
+             FileChannel channel = file.getChannel();
+             FileLock lock = channel.lock()) {
+            assertThat(lock.isValid(), is(true));
+            assertThat(WritabilityProbe.canWrite(copy), is(true));
+
+            copy.setLastModified(1100000000000L);
+            assertThat(WritabilityProbe.canWrite(copy), is(false));
+        }
+        copy.setLastModified(1200000000000L);
+        assertThat(WritabilityProbe.canWrite(copy), is(true));
+    }
+
+}